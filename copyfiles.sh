@@ -1,9 +1,76 @@
 rm ../Mineshafter\ Launcher/resources/*
 
 cp bin/com/mojang/authlib/properties/Property.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetDownloadEngine.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetDownloadEngine\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetDownloadEngine\$2.class ../Mineshafter\ Launcher/resources/
 cp bin/com/mojang/launcher/updater/download/assets/AssetDownloadable.class ../Mineshafter\ Launcher/resources/
 cp bin/com/mojang/launcher/updater/download/assets/AssetDownloadable\$Status.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetIndexStore.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetIndexStore\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetObjectCollector.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetObjectCollector\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetObjectCollector\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetObjectCollector\$Candidate.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetObjectCollector\$Result.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetPackStore.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetPackStore\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetPackStore\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/AssetVerificationJournal.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/HashingService.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/HashingService\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/HashingService\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/HashingService\$HashTask.class ../Mineshafter\ Launcher/resources/
+cp bin/com/mojang/launcher/updater/download/assets/PartialDownload.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/AssetMigration.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/AssetMigration\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/AssetPathLookup.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/ClassDataSharing.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/CrashReportLoader.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/GameOutputCapture.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/GameOutputCapture\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/GameOutputCapture\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/GameOutputCapture\$3.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/JavaRuntimeInfo.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/JvmErgonomics.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/LauncherJanitor.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/LauncherJanitor\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/LauncherJanitor\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/LauncherJanitor\$3.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/LauncherJanitor\$DirectoryFilter.class ../Mineshafter\ Launcher/resources/
 cp bin/net/minecraft/launcher/game/MinecraftGameRunner.class ../Mineshafter\ Launcher/resources/
 cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$3.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$4.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$5.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$6.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$7.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/MinecraftGameRunner\$8.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/NativesCache.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/NativesCache\$Extractor.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/NativesExtractor.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/NativesExtractor\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/VirtualAssetsBuilder.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/game/VirtualAssetsBuilder\$1.class ../Mineshafter\ Launcher/resources/
 cp bin/net/minecraft/launcher/updater/CompleteMinecraftVersion.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/CompleteMinecraftVersion\$1.class ../Mineshafter\ Launcher/resources/
 cp bin/net/minecraft/launcher/updater/DownloadType.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/FeatureSnapshot.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/FeatureSnapshot\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/FeatureSnapshot\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/JavaVersionInfo.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/LaunchPlan.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/LaunchPlan\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/LaunchPlan\$Artifact.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/ResolvedVersionCache.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/ResolvedVersionCache\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/ResolvedVersionCache\$CachedVersion.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/ResolvedVersionCache\$ChainEntry.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/VersionPrefetcher.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/VersionPrefetcher\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/VersionPrefetcher\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/VersionPrefetcher\$Run.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/VersionPrefetcher\$Run\$1.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/VersionPrefetcher\$Run\$2.class ../Mineshafter\ Launcher/resources/
+cp bin/net/minecraft/launcher/updater/VersionPrefetcher\$Transfer.class ../Mineshafter\ Launcher/resources/
@@ -0,0 +1,117 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.updater.download.Downloadable;
+
+public class AssetDownloadEngine {
+	private static final Logger LOGGER = LogManager.getLogger();
+	public static final int DEFAULT_CONNECTIONS = 16;
+	public static final int DEFAULT_ATTEMPTS = 5;
+	private static final int DRAIN_LIMIT = 64 * 1024;
+	private static AssetDownloadEngine instance;
+	private final int connectionsPerHost;
+	private final ThreadPoolExecutor executor;
+	private final ConcurrentHashMap<String, Semaphore> hostSlots = new ConcurrentHashMap<String, Semaphore>();
+
+	public AssetDownloadEngine(int connectionsPerHost) {
+		if (connectionsPerHost < 1) { throw new IllegalArgumentException("Need at least one connection per host"); }
+		this.connectionsPerHost = connectionsPerHost;
+		this.executor = new ThreadPoolExecutor(connectionsPerHost, connectionsPerHost, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Asset Downloader #" + this.count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public static synchronized AssetDownloadEngine getInstance() {
+		if (instance == null) {
+			instance = new AssetDownloadEngine(getConfiguredConnections());
+		}
+		return instance;
+	}
+
+	public static int getConfiguredConnections() {
+		// As many as the launcher's download job runs workers, so the limit only bites once background transfers join in
+		return Math.max(1, Integer.getInteger("mineshafter.assetConnectionsPerHost", DEFAULT_CONNECTIONS).intValue());
+	}
+
+	public void acquire(URL url) throws IOException {
+		try {
+			getSlots(url).acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a download slot for " + url.getHost());
+		}
+	}
+
+	public void release(URL url) {
+		getSlots(url).release();
+	}
+
+	private Semaphore getSlots(URL url) {
+		String host = url.getProtocol() + "://" + url.getAuthority();
+		Semaphore slots = this.hostSlots.get(host);
+		if (slots == null) {
+			Semaphore created = new Semaphore(this.connectionsPerHost, true);
+			slots = this.hostSlots.putIfAbsent(host, created);
+			if (slots == null) {
+				slots = created;
+			}
+		}
+		return slots;
+	}
+
+	public static void discard(HttpURLConnection connection) {
+		// Reading the rest of an error body lets the JDK hand the socket back to the keep-alive cache instead of closing it
+		InputStream inputStream = connection.getErrorStream();
+		if (inputStream == null) { return; }
+		try {
+			byte[] buffer = new byte[4096];
+			int total = 0;
+			int length;
+			while ((total < DRAIN_LIMIT) && ((length = inputStream.read(buffer)) != -1)) {
+				total += length;
+			}
+		} catch (IOException localIOException) {} finally {
+			Downloadable.closeSilently(inputStream);
+		}
+	}
+
+	public void defer(final Downloadable download) {
+		this.executor.execute(new Runnable() {
+			public void run() {
+				for (int attempt = 0; attempt < DEFAULT_ATTEMPTS; attempt++) {
+					try {
+						String result = download.download();
+						LOGGER.debug("Background download of {}: {}", new Object[] { download.getUrl(), result });
+						return;
+					} catch (Throwable e) {
+						if (attempt == DEFAULT_ATTEMPTS - 1) {
+							LOGGER.warn("Couldn't download " + download.getUrl() + " in the background", e);
+						}
+					}
+				}
+			}
+		});
+	}
+}
@@ -1,33 +1,47 @@
 package com.mojang.launcher.updater.download.assets;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
-import java.util.zip.GZIPInputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 
 import com.mojang.launcher.updater.download.Downloadable;
-import com.mojang.launcher.updater.download.MonitoringInputStream;
 
 public class AssetDownloadable extends Downloadable {
+	private static final boolean KEEP_COMPRESSED = Boolean.getBoolean("mineshafter.keepCompressedAssets");
+	private static final boolean DEFER_STREAMED = !Boolean.getBoolean("mineshafter.waitForAllAssets");
+	// Only namespaced keys: virtual indexes use bare music/ and records/ keys and need every object before their root is built.
+	// Menu music plays straight away, so it is never deferred
+	private static final Pattern STREAMED_ASSET = Pattern.compile("^minecraft/sounds/(music/(?!menu/)|records/)");
 	private final String name;
-	private final AssetIndex.AssetObject asset;
+	private final String hash;
+	private final long size;
+	private final String compressedHash;
+	private final long compressedSize;
 	private final String urlBase;
 	private final File destination;
 	private Status status = Status.DOWNLOADING;
+	private PartialDownload partialAsset;
+	private PartialDownload partialCompressed;
+	private boolean deferred;
 
 	public AssetDownloadable(Proxy proxy, String name, AssetIndex.AssetObject asset, String urlBase, File destination) throws MalformedURLException {
-		super(proxy, new URL(urlBase + createPathFromHash(asset.getHash())), new File(destination, createPathFromHash(asset.getHash())), false);
+		this(proxy, name, asset.getHash(), asset.getSize(), asset.hasCompressedAlternative() ? asset.getCompressedHash() : null, asset.getCompressedSize(), urlBase, destination);
+	}
+
+	public AssetDownloadable(Proxy proxy, String name, String hash, long size, String compressedHash, long compressedSize, String urlBase, File destination) throws MalformedURLException {
+		super(proxy, new URL(urlBase + createPathFromHash(hash)), new File(destination, createPathFromHash(hash)), false);
 		this.name = name;
-		this.asset = asset;
+		this.hash = hash;
+		this.size = size;
+		this.compressedHash = compressedHash;
+		this.compressedSize = compressedSize;
 		this.urlBase = urlBase;
 		this.destination = destination;
 	}
@@ -41,52 +55,106 @@ public class AssetDownloadable extends Downloadable {
 
 		this.numAttempts += 1;
 		File localAsset = getTarget();
-		File localCompressed = this.asset.hasCompressedAlternative() ? new File(this.destination, createPathFromHash(this.asset.getCompressedHash())) : null;
+		File localCompressed = this.compressedHash != null ? new File(this.destination, createPathFromHash(this.compressedHash)) : null;
 		URL remoteAsset = getUrl();
-		URL remoteCompressed = this.asset.hasCompressedAlternative() ? new URL(this.urlBase + createPathFromHash(this.asset.getCompressedHash())) : null;
+		URL remoteCompressed = this.compressedHash != null ? new URL(this.urlBase + createPathFromHash(this.compressedHash)) : null;
 
 		ensureFileWritable(localAsset);
-		if (localCompressed != null) {
+		if ((localCompressed != null) && (KEEP_COMPRESSED)) {
 			ensureFileWritable(localCompressed);
 		}
-		if (localAsset.isFile()) {
-			if (FileUtils.sizeOf(localAsset) == this.asset.getSize()) { return "Have local file and it's the same size; assuming it's okay!"; }
-			//LOGGER.warn("Had local file but it was the wrong size... had {} but expected {}", new Object[] { Long.valueOf(FileUtils.sizeOf(localAsset)), Long.valueOf(this.asset.getSize()) });
+		AssetVerificationJournal journal = AssetVerificationJournal.forDirectory(this.destination);
+		BasicFileAttributes localAttributes = AssetVerificationJournal.readAttributes(localAsset);
+		if (localAttributes != null) {
+			if (localAttributes.size() == this.size) {
+				if (journal.isVerified(this.hash, localAttributes)) { return "Have local file and it's already been verified"; }
+				if (journal.verify(this.hash, localAsset, localAttributes)) { return "Have local file and its hash matched"; }
+			}
+			//LOGGER.warn("Had local file but it was the wrong size... had {} but expected {}", new Object[] { Long.valueOf(FileUtils.sizeOf(localAsset)), Long.valueOf(this.size) });
 			FileUtils.deleteQuietly(localAsset);
 			this.status = Status.DOWNLOADING;
 		}
+		AssetPackStore pack = AssetPackStore.forDirectory(this.destination);
+		if ((pack != null) && (pack.contains(this.hash))) { return "Have packed asset"; }
 		if ((localCompressed != null) && (localCompressed.isFile())) {
-			String localCompressedHash = getDigest(localCompressed, "SHA", 40);
-			if (localCompressedHash.equalsIgnoreCase(this.asset.getCompressedHash())) { return decompressAsset(localAsset, localCompressed); }
-			//LOGGER.warn("Had local compressed but it was the wrong hash... expected {} but had {}", new Object[] { this.asset.getCompressedHash(), localCompressedHash });
+			String localCompressedHash = HashingService.getInstance().hash(localCompressed);
+			if (localCompressedHash.equalsIgnoreCase(this.compressedHash)) { return decompressAsset(localAsset, localCompressed); }
+			//LOGGER.warn("Had local compressed but it was the wrong hash... expected {} but had {}", new Object[] { this.compressedHash, localCompressedHash });
 			FileUtils.deleteQuietly(localCompressed);
 		}
+		if ((DEFER_STREAMED) && (!this.deferred) && (STREAMED_ASSET.matcher(this.name).find())) {
+			// The game drops sounds whose files are missing when it loads resources, so a track that lands after startup stays
+			// silent until the next resource reload or launch; in-game music and records are worth that for a faster first start
+			this.deferred = true;
+			AssetDownloadEngine.getInstance().defer(this);
+			return "Deferred streamed asset to the background";
+		}
 		if ((remoteCompressed != null) && (localCompressed != null)) {
-			HttpURLConnection connection = makeConnection(remoteCompressed);
-			int status = connection.getResponseCode();
-			if (status / 100 == 2) {
-				updateExpectedSize(connection);
-
-				InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), getMonitor());
-				FileOutputStream outputStream = new FileOutputStream(localCompressed);
-				String hash = copyAndDigest(inputStream, outputStream, "SHA", 40);
-				if (hash.equalsIgnoreCase(this.asset.getCompressedHash())) { return decompressAsset(localAsset, localCompressed); }
-				FileUtils.deleteQuietly(localCompressed);
-				throw new RuntimeException(String.format("Hash did not match downloaded compressed asset (Expected %s, downloaded %s)", new Object[] { this.asset.getCompressedHash(), hash }));
+			if (!KEEP_COMPRESSED) { return fetchInflated(remoteCompressed); }
+			if (this.partialCompressed == null) {
+				this.partialCompressed = new PartialDownload(localCompressed, this.compressedHash, this.compressedSize);
+			}
+			String hash = fetch(remoteCompressed, this.partialCompressed);
+			if (hash.equalsIgnoreCase(this.compressedHash)) {
+				this.partialCompressed.commit();
+				return decompressAsset(localAsset, localCompressed);
 			}
-			throw new RuntimeException("Server responded with " + status);
+			this.partialCompressed.discard();
+			throw new RuntimeException(String.format("Hash did not match downloaded compressed asset (Expected %s, downloaded %s)", new Object[] { this.compressedHash, hash }));
 		}
-		HttpURLConnection connection = makeConnection(remoteAsset);
-		int status = connection.getResponseCode();
-		if (status / 100 == 2) {
-			updateExpectedSize(connection);
-
-			InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), getMonitor());
-			FileOutputStream outputStream = new FileOutputStream(localAsset);
-			copyAndDigest(inputStream, outputStream, "SHA", 40);
+		PartialDownload partialAsset = getPartialAsset();
+		String hash = fetch(remoteAsset, partialAsset);
+		if (hash.equalsIgnoreCase(this.hash)) {
+			partialAsset.commit();
+			journal.record(this.hash, localAsset);
 			return "Downloaded asset and hash matched successfully";
 		}
-		throw new RuntimeException("Server responded with " + status);
+		partialAsset.discard();
+		throw new RuntimeException(String.format("Hash did not match downloaded asset (Expected %s, downloaded %s)", new Object[] { this.hash, hash }));
+	}
+
+	private String fetch(URL url, PartialDownload partial) throws IOException {
+		AssetDownloadEngine engine = AssetDownloadEngine.getInstance();
+		partial.prepare();
+		engine.acquire(url);
+		try {
+			HttpURLConnection connection = makeConnection(url);
+			partial.applyRange(connection);
+			setExpectedSize(partial.getExpectedSize());
+			partial.receive(connection, getMonitor());
+		} finally {
+			engine.release(url);
+		}
+		return partial.getHash();
+	}
+
+	private String fetchInflated(URL remoteCompressed) throws IOException {
+		AssetDownloadEngine engine = AssetDownloadEngine.getInstance();
+		PartialDownload partialAsset = getPartialAsset();
+		String compressedHash;
+		engine.acquire(remoteCompressed);
+		try {
+			HttpURLConnection connection = makeConnection(remoteCompressed);
+			setExpectedSize(this.compressedSize);
+			compressedHash = partialAsset.receiveInflated(connection, getMonitor(), this.compressedSize);
+		} finally {
+			engine.release(remoteCompressed);
+		}
+		String hash = partialAsset.getHash();
+		if ((!compressedHash.equalsIgnoreCase(this.compressedHash)) || (!hash.equalsIgnoreCase(this.hash))) {
+			partialAsset.discard();
+			throw new RuntimeException(String.format("Hash did not match streamed compressed asset (Expected %s/%s, downloaded %s/%s)", new Object[] { this.compressedHash, this.hash, compressedHash, hash }));
+		}
+		partialAsset.commit();
+		AssetVerificationJournal.forDirectory(this.destination).record(this.hash, getTarget());
+		return "Downloaded compressed asset, unpacked it while streaming and both hashes matched";
+	}
+
+	private PartialDownload getPartialAsset() {
+		if (this.partialAsset == null) {
+			this.partialAsset = new PartialDownload(getTarget(), this.hash, this.size);
+		}
+		return this.partialAsset;
 	}
 
 	public String getStatus() {
@@ -95,15 +163,16 @@ public class AssetDownloadable extends Downloadable {
 
 	protected String decompressAsset(File localAsset, File localCompressed) throws IOException {
 		this.status = Status.EXTRACTING;
-		OutputStream outputStream = FileUtils.openOutputStream(localAsset);
-		InputStream inputStream = new GZIPInputStream(FileUtils.openInputStream(localCompressed));
-		try {
-			copyAndDigest(inputStream, outputStream, "SHA", 40);
-		} finally {
-			IOUtils.closeQuietly(outputStream);
-			IOUtils.closeQuietly(inputStream);
-		}
+		PartialDownload partialAsset = getPartialAsset();
+		partialAsset.inflate(localCompressed);
 		this.status = Status.DOWNLOADING;
+		String hash = partialAsset.getHash();
+		if (!hash.equalsIgnoreCase(this.hash)) {
+			partialAsset.discard();
+			throw new RuntimeException(String.format("Hash did not match unpacked asset (Expected %s, unpacked %s)", new Object[] { this.hash, hash }));
+		}
+		partialAsset.commit();
+		AssetVerificationJournal.forDirectory(this.destination).record(this.hash, localAsset);
 		return "Had local compressed asset, unpacked successfully and hash matched";
 	}
 
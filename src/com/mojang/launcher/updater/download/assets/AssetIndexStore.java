@@ -0,0 +1,347 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mojang.launcher.updater.download.Downloadable;
+
+public class AssetIndexStore {
+	private static final int MAGIC = 0x4D534149;
+	private static final int FORMAT = 1;
+	private static final int HASH_LENGTH = 20;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private boolean virtual;
+	private int count;
+	private String[] keys;
+	private byte[] hashes;
+	private long[] sizes;
+	private byte[] compressedHashes;
+	private long[] compressedSizes;
+	private int[] slots;
+
+	private AssetIndexStore(boolean virtual, int capacity) {
+		this.virtual = virtual;
+		this.keys = new String[capacity];
+		this.hashes = new byte[capacity * HASH_LENGTH];
+		this.sizes = new long[capacity];
+		this.compressedHashes = new byte[capacity * HASH_LENGTH];
+		this.compressedSizes = new long[capacity];
+	}
+
+	public static AssetIndexStore load(File jsonFile) throws IOException {
+		File binaryFile = getBinaryFile(jsonFile);
+		long length = jsonFile.length();
+		long modified = jsonFile.lastModified();
+		if (binaryFile.isFile()) {
+			try {
+				AssetIndexStore store = readBinary(binaryFile, length, modified, null);
+				if (store != null) { return store; }
+				// The JSON was touched; if it was only re-downloaded with the same content the sidecar is still good
+				String jsonHash = HashingService.getInstance().hash(jsonFile);
+				store = readBinary(binaryFile, -1L, -1L, jsonHash);
+				if (store != null) {
+					writeBinary(binaryFile, store, length, modified, jsonHash);
+					return store;
+				}
+			} catch (IOException localIOException) {} catch (RuntimeException localRuntimeException) {}
+		}
+		AssetIndexStore store = parseJson(jsonFile);
+		try {
+			writeBinary(binaryFile, store, length, modified, HashingService.getInstance().hash(jsonFile));
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(binaryFile);
+		}
+		return store;
+	}
+
+	public static File getBinaryFile(File jsonFile) {
+		String name = jsonFile.getName();
+		int dot = name.lastIndexOf('.');
+		return new File(jsonFile.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + ".bin");
+	}
+
+	private static AssetIndexStore parseJson(File jsonFile) throws IOException {
+		AssetIndexStore store = new AssetIndexStore(false, 1024);
+		JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(new FileInputStream(jsonFile), Charsets.UTF_8), 65536));
+		try {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if ((name.equals("virtual")) && (reader.peek() == JsonToken.BOOLEAN)) {
+					store.virtual = reader.nextBoolean();
+				} else if ((name.equals("objects")) && (reader.peek() == JsonToken.BEGIN_OBJECT)) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						store.readObject(reader.nextName(), reader);
+					}
+					reader.endObject();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IllegalStateException e) {
+			throw new IOException("Couldn't parse asset index " + jsonFile, e);
+		} catch (NumberFormatException e) {
+			throw new IOException("Couldn't parse asset index " + jsonFile, e);
+		} finally {
+			Downloadable.closeSilently(reader);
+		}
+		store.sort();
+		store.buildSlots();
+		return store;
+	}
+
+	private void readObject(String key, JsonReader reader) throws IOException {
+		String hash = null;
+		long size = 0L;
+		String compressedHash = null;
+		long compressedSize = 0L;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("hash")) {
+				hash = reader.nextString();
+			} else if (name.equals("size")) {
+				size = reader.nextLong();
+			} else if (name.equals("compressedHash")) {
+				compressedHash = reader.nextString();
+			} else if (name.equals("compressedSize")) {
+				compressedSize = reader.nextLong();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if ((hash == null) || (hash.length() != HASH_LENGTH * 2)) { throw new IOException("Asset " + key + " has no valid hash"); }
+		if (this.count == this.keys.length) {
+			grow(this.count * 2);
+		}
+		int i = this.count++;
+		this.keys[i] = key;
+		putHex(this.hashes, i, hash);
+		this.sizes[i] = size;
+		if ((compressedHash != null) && (compressedHash.length() == HASH_LENGTH * 2)) {
+			putHex(this.compressedHashes, i, compressedHash);
+			this.compressedSizes[i] = compressedSize;
+		} else {
+			this.compressedSizes[i] = -1L;
+		}
+	}
+
+	private void grow(int capacity) {
+		this.keys = Arrays.copyOf(this.keys, capacity);
+		this.hashes = Arrays.copyOf(this.hashes, capacity * HASH_LENGTH);
+		this.sizes = Arrays.copyOf(this.sizes, capacity);
+		this.compressedHashes = Arrays.copyOf(this.compressedHashes, capacity * HASH_LENGTH);
+		this.compressedSizes = Arrays.copyOf(this.compressedSizes, capacity);
+	}
+
+	private void sort() {
+		Integer[] order = new Integer[this.count];
+		for (int i = 0; i < this.count; i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return AssetIndexStore.this.keys[a.intValue()].compareTo(AssetIndexStore.this.keys[b.intValue()]);
+			}
+		});
+		String[] keys = new String[this.count];
+		byte[] hashes = new byte[this.count * HASH_LENGTH];
+		long[] sizes = new long[this.count];
+		byte[] compressedHashes = new byte[this.count * HASH_LENGTH];
+		long[] compressedSizes = new long[this.count];
+		for (int i = 0; i < this.count; i++) {
+			int from = order[i].intValue();
+			keys[i] = this.keys[from];
+			System.arraycopy(this.hashes, from * HASH_LENGTH, hashes, i * HASH_LENGTH, HASH_LENGTH);
+			sizes[i] = this.sizes[from];
+			System.arraycopy(this.compressedHashes, from * HASH_LENGTH, compressedHashes, i * HASH_LENGTH, HASH_LENGTH);
+			compressedSizes[i] = this.compressedSizes[from];
+		}
+		this.keys = keys;
+		this.hashes = hashes;
+		this.sizes = sizes;
+		this.compressedHashes = compressedHashes;
+		this.compressedSizes = compressedSizes;
+	}
+
+	private void buildSlots() {
+		int capacity = Integer.highestOneBit(Math.max(16, this.count * 2 - 1)) << 1;
+		this.slots = new int[capacity];
+		for (int i = 0; i < this.count; i++) {
+			int slot = mix(this.keys[i].hashCode()) & (capacity - 1);
+			while (this.slots[slot] != 0) {
+				slot = (slot + 1) & (capacity - 1);
+			}
+			this.slots[slot] = i + 1;
+		}
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static AssetIndexStore readBinary(File binaryFile, long length, long modified, String jsonHash) throws IOException {
+		// Read onto the heap rather than mapped, a mapping would pin the file until it is collected and block the rewrite on Windows
+		ByteBuffer buffer = ByteBuffer.wrap(FileUtils.readFileToByteArray(binaryFile));
+		try {
+			if ((buffer.getInt() != MAGIC) || (buffer.getInt() != FORMAT)) { return null; }
+			long storedLength = buffer.getLong();
+			long storedModified = buffer.getLong();
+			byte[] raw = new byte[HASH_LENGTH];
+			buffer.get(raw);
+			if (jsonHash == null ? (storedLength != length) || (storedModified != modified) : !jsonHash.equals(HashingService.toHex(raw))) { return null; }
+			boolean virtual = buffer.get() != 0;
+			int count = buffer.getInt();
+			AssetIndexStore store = new AssetIndexStore(virtual, count);
+			store.count = count;
+			byte[] key = new byte[256];
+			for (int i = 0; i < count; i++) {
+				int keyLength = buffer.getShort() & 0xFFFF;
+				if (keyLength > key.length) {
+					key = new byte[keyLength];
+				}
+				buffer.get(key, 0, keyLength);
+				store.keys[i] = new String(key, 0, keyLength, Charsets.UTF_8);
+				buffer.get(store.hashes, i * HASH_LENGTH, HASH_LENGTH);
+				store.sizes[i] = buffer.getLong();
+				if (buffer.get() != 0) {
+					buffer.get(store.compressedHashes, i * HASH_LENGTH, HASH_LENGTH);
+					store.compressedSizes[i] = buffer.getLong();
+				} else {
+					store.compressedSizes[i] = -1L;
+				}
+			}
+			store.buildSlots();
+			return store;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated asset index " + binaryFile, e);
+		}
+	}
+
+	private static void writeBinary(File binaryFile, AssetIndexStore store, long length, long modified, String jsonHash) throws IOException {
+		File temp = new File(binaryFile.getPath() + ".tmp");
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT);
+			output.writeLong(length);
+			output.writeLong(modified);
+			byte[] raw = new byte[HASH_LENGTH];
+			putHex(raw, 0, jsonHash);
+			output.write(raw);
+			output.writeByte(store.virtual ? 1 : 0);
+			output.writeInt(store.count);
+			for (int i = 0; i < store.count; i++) {
+				byte[] key = store.keys[i].getBytes(Charsets.UTF_8);
+				output.writeShort(key.length);
+				output.write(key);
+				output.write(store.hashes, i * HASH_LENGTH, HASH_LENGTH);
+				output.writeLong(store.sizes[i]);
+				output.writeByte(store.hasCompressedAlternative(i) ? 1 : 0);
+				if (store.hasCompressedAlternative(i)) {
+					output.write(store.compressedHashes, i * HASH_LENGTH, HASH_LENGTH);
+					output.writeLong(store.compressedSizes[i]);
+				}
+			}
+		} finally {
+			output.close();
+		}
+		try {
+			Files.move(temp.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(temp);
+			throw e;
+		}
+	}
+
+	private static void putHex(byte[] target, int index, String hash) {
+		int offset = index * HASH_LENGTH;
+		for (int i = 0; i < HASH_LENGTH; i++) {
+			target[offset + i] = (byte) ((Character.digit(hash.charAt(i * 2), 16) << 4) | Character.digit(hash.charAt(i * 2 + 1), 16));
+		}
+	}
+
+	private static String toHex(byte[] source, int index, boolean path) {
+		int offset = index * HASH_LENGTH;
+		int start = path ? 3 : 0;
+		char[] result = new char[start + HASH_LENGTH * 2];
+		for (int i = 0; i < HASH_LENGTH; i++) {
+			result[start + i * 2] = HEX[(source[offset + i] >> 4) & 0xF];
+			result[start + i * 2 + 1] = HEX[source[offset + i] & 0xF];
+		}
+		if (path) {
+			result[0] = result[3];
+			result[1] = result[4];
+			result[2] = '/';
+		}
+		return new String(result);
+	}
+
+	public boolean isVirtual() {
+		return this.virtual;
+	}
+
+	public int size() {
+		return this.count;
+	}
+
+	public int find(String key) {
+		int mask = this.slots.length - 1;
+		int slot = mix(key.hashCode()) & mask;
+		int entry;
+		while ((entry = this.slots[slot]) != 0) {
+			if (this.keys[entry - 1].equals(key)) { return entry - 1; }
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	public String getKey(int i) {
+		return this.keys[i];
+	}
+
+	public String getHash(int i) {
+		return toHex(this.hashes, i, false);
+	}
+
+	public String getObjectPath(int i) {
+		return toHex(this.hashes, i, true);
+	}
+
+	public long getSize(int i) {
+		return this.sizes[i];
+	}
+
+	public boolean hasCompressedAlternative(int i) {
+		return this.compressedSizes[i] >= 0L;
+	}
+
+	public String getCompressedHash(int i) {
+		return hasCompressedAlternative(i) ? toHex(this.compressedHashes, i, false) : null;
+	}
+
+	public long getCompressedSize(int i) {
+		return this.compressedSizes[i];
+	}
+}
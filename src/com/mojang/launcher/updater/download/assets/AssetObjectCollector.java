@@ -0,0 +1,161 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class AssetObjectCollector {
+	private static final Logger LOGGER = LogManager.getLogger();
+	public static final boolean ENABLED = Boolean.getBoolean("mineshafter.assetGC");
+	public static final long QUOTA = Long.getLong("mineshafter.assetQuotaMB", 0L).longValue() * 1024L * 1024L;
+	private static final long GRACE = TimeUnit.HOURS.toMillis(1L);
+	private static final long PART_AGE = TimeUnit.DAYS.toMillis(7L);
+	private static final long PAUSE = 20L;
+	private final File indexesDir;
+	private final File objectsDir;
+	private final long quota;
+
+	public AssetObjectCollector(File assetsDir, long quota) {
+		this.indexesDir = new File(assetsDir, "indexes");
+		this.objectsDir = new File(assetsDir, "objects");
+		this.quota = quota;
+	}
+
+	public static boolean isEnabled() {
+		return (ENABLED) || (QUOTA > 0L);
+	}
+
+	public void collect() throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		Set<String> live = new HashSet<String>();
+		Set<String> compressed = new HashSet<String>();
+		mark(live, compressed);
+		Result result = new Result();
+		for (int prefix = 0; prefix < 256; prefix++) {
+			if (Thread.interrupted()) { throw new InterruptedException(); }
+			File dir = new File(this.objectsDir, String.format("%02x", new Object[] { Integer.valueOf(prefix) }));
+			if (dir.isDirectory()) {
+				sweep(dir, live, compressed, start - GRACE, result);
+				// One prefix at a time, so a background run never hogs the disk
+				Thread.sleep(PAUSE);
+			}
+		}
+		if (this.quota > 0L) {
+			evict(result);
+		}
+		LOGGER.info("Asset store holds {} bytes in {} live objects; removed {} objects ({} bytes) in {} ms", new Object[] { Long.valueOf(result.total), Integer.valueOf(result.live), Integer.valueOf(result.deleted),
+				Long.valueOf(result.freed), Long.valueOf(System.currentTimeMillis() - start) });
+	}
+
+	private void mark(Set<String> live, Set<String> compressed) throws IOException {
+		File[] indexes = this.indexesDir.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return (file.isFile()) && (file.getName().endsWith(".json"));
+			}
+		});
+		if (indexes == null) { return; }
+		for (File indexFile : indexes) {
+			// An index we can't read might reference anything, so nothing is safe to delete
+			AssetIndexStore index = AssetIndexStore.load(indexFile);
+			for (int i = 0; i < index.size(); i++) {
+				live.add(index.getHash(i));
+				if (index.hasCompressedAlternative(i)) {
+					compressed.add(index.getCompressedHash(i));
+				}
+			}
+		}
+	}
+
+	private void sweep(File dir, Set<String> live, Set<String> compressed, long cutoff, Result result) {
+		File[] files = dir.listFiles();
+		if (files == null) { return; }
+		for (File file : files) {
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			} catch (IOException e) {
+				continue;
+			}
+			if (!attributes.isRegularFile()) {
+				continue;
+			}
+			String name = file.getName();
+			long lastUsed = Math.max(attributes.lastModifiedTime().toMillis(), attributes.lastAccessTime().toMillis());
+			if ((name.endsWith(".part")) || (name.endsWith(".part.meta"))) {
+				if (attributes.lastModifiedTime().toMillis() < cutoff - PART_AGE) {
+					delete(file, attributes.size(), result);
+				}
+			} else if (live.contains(name)) {
+				result.total += attributes.size();
+				result.live++;
+			} else if (attributes.lastModifiedTime().toMillis() >= cutoff) {
+				// Written after we marked, most likely by a download for an index we haven't seen
+				result.total += attributes.size();
+			} else if ((compressed.contains(name)) || (this.quota > 0L)) {
+				// With a quota, unreferenced objects stay around as a cache until space runs out
+				result.total += attributes.size();
+				result.candidates.add(new Candidate(file, attributes.size(), lastUsed));
+			} else {
+				delete(file, attributes.size(), result);
+			}
+		}
+	}
+
+	private void evict(Result result) {
+		Collections.sort(result.candidates, new Comparator<Candidate>() {
+			public int compare(Candidate a, Candidate b) {
+				return a.lastUsed < b.lastUsed ? -1 : a.lastUsed > b.lastUsed ? 1 : 0;
+			}
+		});
+		for (Candidate candidate : result.candidates) {
+			if (result.total <= this.quota) {
+				break;
+			}
+			if (delete(candidate.file, candidate.size, result)) {
+				result.total -= candidate.size;
+			}
+		}
+		if (result.total > this.quota) {
+			LOGGER.warn("Asset store needs {} bytes for installed versions, more than the quota of {} bytes", new Object[] { Long.valueOf(result.total), Long.valueOf(this.quota) });
+		}
+	}
+
+	private boolean delete(File file, long size, Result result) {
+		if (!file.delete()) { return false; }
+		result.deleted++;
+		result.freed += size;
+		return true;
+	}
+
+	private static class Candidate {
+		private final File file;
+		private final long size;
+		private final long lastUsed;
+
+		private Candidate(File file, long size, long lastUsed) {
+			this.file = file;
+			this.size = size;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	private static class Result {
+		private final List<Candidate> candidates = new ArrayList<Candidate>();
+		private long total;
+		private long freed;
+		private int live;
+		private int deleted;
+	}
+}
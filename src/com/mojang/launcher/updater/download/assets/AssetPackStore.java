@@ -0,0 +1,325 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.updater.download.Downloadable;
+
+public class AssetPackStore {
+	private static final Logger LOGGER = LogManager.getLogger();
+	public static final boolean ENABLED = Boolean.getBoolean("mineshafter.assetPacks");
+	public static final long SMALL_OBJECT = 64L * 1024L;
+	private static final int MAGIC = 0x4D534150;
+	private static final int FORMAT = 1;
+	private static final int HASH_LENGTH = 20;
+	private static final int ENTRY_SIZE = HASH_LENGTH + 8 + 4;
+	private static final int BATCH_SIZE = 1024;
+	private static final Map<File, AssetPackStore> stores = new HashMap<File, AssetPackStore>();
+	private final File objectsDir;
+	private final File packFile;
+	private final File indexFile;
+	private final File lockFile;
+	private byte[] entries = new byte[0];
+	private int count;
+	private long packLength;
+
+	private AssetPackStore(File objectsDir) {
+		this.objectsDir = objectsDir;
+		File dir = new File(objectsDir, "packs");
+		this.packFile = new File(dir, "objects.pack");
+		this.indexFile = new File(dir, "objects.idx");
+		this.lockFile = new File(dir, ".lock");
+	}
+
+	public static synchronized AssetPackStore forDirectory(File objectsDir) {
+		if (!ENABLED) { return null; }
+		AssetPackStore store = stores.get(objectsDir);
+		if (store == null) {
+			store = new AssetPackStore(objectsDir);
+			try {
+				store.load();
+			} catch (IOException e) {
+				LOGGER.warn("Couldn't read asset pack index, starting with an empty pack", e);
+				store.entries = new byte[0];
+				store.count = 0;
+				store.packLength = 0L;
+			}
+			stores.put(objectsDir, store);
+		}
+		return store;
+	}
+
+	private void load() throws IOException {
+		if (!this.indexFile.isFile()) { return; }
+		DataInputStream input = new DataInputStream(new FileInputStream(this.indexFile));
+		try {
+			if ((input.readInt() != MAGIC) || (input.readInt() != FORMAT)) { throw new IOException("Unknown asset pack index format"); }
+			int count = input.readInt();
+			long packLength = input.readLong();
+			byte[] entries = new byte[count * ENTRY_SIZE];
+			input.readFully(entries);
+			if (this.packFile.length() < packLength) { throw new IOException("Asset pack is shorter than its index"); }
+			this.entries = entries;
+			this.count = count;
+			this.packLength = packLength;
+		} finally {
+			Downloadable.closeSilently(input);
+		}
+	}
+
+	public synchronized boolean contains(String hash) {
+		return find(parseHash(hash)) >= 0;
+	}
+
+	public synchronized ByteBuffer read(String hash) throws IOException {
+		int entry = find(parseHash(hash));
+		if (entry < 0) { return null; }
+		ByteBuffer index = ByteBuffer.wrap(this.entries);
+		long offset = index.getLong(entry * ENTRY_SIZE + HASH_LENGTH);
+		int length = index.getInt(entry * ENTRY_SIZE + HASH_LENGTH + 8);
+		// Positional reads rather than a mapping, which would stop append() from resizing the pack on Windows
+		ByteBuffer result = ByteBuffer.allocate(length);
+		RandomAccessFile input = new RandomAccessFile(this.packFile, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			while (result.hasRemaining()) {
+				if (channel.read(result, offset + result.position()) < 0) { throw new IOException("Asset pack ended inside " + hash); }
+			}
+		} finally {
+			input.close();
+		}
+		result.flip();
+		return result;
+	}
+
+	public boolean materialise(String hash, File target) throws IOException {
+		ByteBuffer data = read(hash);
+		if (data == null) { return false; }
+		target.getParentFile().mkdirs();
+		File temp = new File(target.getPath() + ".unpack-" + Thread.currentThread().getId());
+		FileChannel output = new FileOutputStream(temp).getChannel();
+		try {
+			while (data.hasRemaining()) {
+				output.write(data);
+			}
+		} finally {
+			output.close();
+		}
+		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return true;
+	}
+
+	public int materialiseMissing(AssetIndexStore index) throws IOException {
+		// Only packed objects cost a stat, everything else was never removed from the loose store
+		int materialised = 0;
+		for (int i = 0; i < index.size(); i++) {
+			String hash = index.getHash(i);
+			File target = new File(this.objectsDir, index.getObjectPath(i));
+			if ((contains(hash)) && (!target.isFile()) && (materialise(hash, target))) {
+				materialised++;
+			}
+		}
+		return materialised;
+	}
+
+	public int packLooseObjects(File indexesDir) throws IOException, InterruptedException {
+		File[] indexes = indexesDir.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return (file.isFile()) && (file.getName().endsWith(".json"));
+			}
+		});
+		if (indexes == null) { return 0; }
+		// Modern versions read objects straight from the store, so only objects nothing but virtual indexes want can go
+		Set<String> needsPath = new HashSet<String>();
+		Set<String> candidates = new HashSet<String>();
+		for (File indexFile : indexes) {
+			AssetIndexStore index = AssetIndexStore.load(indexFile);
+			for (int i = 0; i < index.size(); i++) {
+				if (!index.isVirtual()) {
+					needsPath.add(index.getHash(i));
+				} else if (index.getSize(i) <= SMALL_OBJECT) {
+					candidates.add(index.getHash(i));
+				}
+			}
+		}
+		candidates.removeAll(needsPath);
+		List<String> batch = new ArrayList<String>();
+		int packed = 0;
+		for (String hash : candidates) {
+			if (Thread.interrupted()) { throw new InterruptedException(); }
+			if ((contains(hash)) || (!new File(this.objectsDir, hash.substring(0, 2) + "/" + hash).isFile())) {
+				continue;
+			}
+			batch.add(hash);
+			if (batch.size() >= BATCH_SIZE) {
+				packed += append(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			packed += append(batch);
+		}
+		return packed;
+	}
+
+	private int append(List<String> hashes) throws IOException {
+		this.packFile.getParentFile().mkdirs();
+		List<File> added = new ArrayList<File>();
+		RandomAccessFile lock = new RandomAccessFile(this.lockFile, "rw");
+		try {
+			FileLock fileLock = lock.getChannel().lock();
+			try {
+				synchronized (this) {
+					// Another launcher may have appended since we last looked
+					load();
+					RandomAccessFile output = new RandomAccessFile(this.packFile, "rw");
+					ByteBuffer newEntries = ByteBuffer.allocate(hashes.size() * ENTRY_SIZE);
+					try {
+						// Anything past the recorded length is a torn append from a run that died before writing its index
+						output.setLength(this.packLength);
+						output.seek(this.packLength);
+						long offset = this.packLength;
+						for (String hash : hashes) {
+							File file = new File(this.objectsDir, hash.substring(0, 2) + "/" + hash);
+							byte[] data;
+							try {
+								data = FileUtils.readFileToByteArray(file);
+							} catch (IOException e) {
+								continue;
+							}
+							if ((offset + data.length > Integer.MAX_VALUE) || (!hash.equals(sha1(data)))) {
+								continue;
+							}
+							output.write(data);
+							newEntries.put(parseHash(hash)).putLong(offset).putInt(data.length);
+							offset += data.length;
+							added.add(file);
+						}
+						output.getFD().sync();
+						writeIndex(merge(newEntries.array(), added.size()), offset);
+					} finally {
+						output.close();
+					}
+				}
+			} finally {
+				fileLock.release();
+			}
+		} finally {
+			lock.close();
+		}
+		for (File file : added) {
+			FileUtils.deleteQuietly(file);
+		}
+		return added.size();
+	}
+
+	private byte[] merge(byte[] added, int addedCount) {
+		byte[] result = new byte[(this.count + addedCount) * ENTRY_SIZE];
+		System.arraycopy(this.entries, 0, result, 0, this.count * ENTRY_SIZE);
+		System.arraycopy(added, 0, result, this.count * ENTRY_SIZE, addedCount * ENTRY_SIZE);
+		Integer[] order = new Integer[this.count + addedCount];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		final byte[] unsorted = result;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return compareHash(unsorted, a.intValue() * ENTRY_SIZE, unsorted, b.intValue() * ENTRY_SIZE);
+			}
+		});
+		byte[] sorted = new byte[result.length];
+		for (int i = 0; i < order.length; i++) {
+			System.arraycopy(unsorted, order[i].intValue() * ENTRY_SIZE, sorted, i * ENTRY_SIZE, ENTRY_SIZE);
+		}
+		return sorted;
+	}
+
+	private void writeIndex(byte[] entries, long packLength) throws IOException {
+		File temp = new File(this.indexFile.getPath() + ".tmp");
+		DataOutputStream output = new DataOutputStream(new FileOutputStream(temp));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT);
+			output.writeInt(entries.length / ENTRY_SIZE);
+			output.writeLong(packLength);
+			output.write(entries);
+		} finally {
+			output.close();
+		}
+		Files.move(temp.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		this.entries = entries;
+		this.count = entries.length / ENTRY_SIZE;
+		this.packLength = packLength;
+	}
+
+	private int find(byte[] hash) {
+		if (hash == null) { return -1; }
+		int low = 0;
+		int high = this.count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int compare = compareHash(this.entries, mid * ENTRY_SIZE, hash, 0);
+			if (compare < 0) {
+				low = mid + 1;
+			} else if (compare > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private static int compareHash(byte[] a, int offsetA, byte[] b, int offsetB) {
+		for (int i = 0; i < HASH_LENGTH; i++) {
+			int compare = (a[offsetA + i] & 0xFF) - (b[offsetB + i] & 0xFF);
+			if (compare != 0) { return compare; }
+		}
+		return 0;
+	}
+
+	private static byte[] parseHash(String hash) {
+		if ((hash == null) || (hash.length() != HASH_LENGTH * 2)) { return null; }
+		byte[] result = new byte[HASH_LENGTH];
+		for (int i = 0; i < HASH_LENGTH; i++) {
+			int high = Character.digit(hash.charAt(i * 2), 16);
+			int low = Character.digit(hash.charAt(i * 2 + 1), 16);
+			if ((high < 0) || (low < 0)) { return null; }
+			result[i] = (byte) ((high << 4) | low);
+		}
+		return result;
+	}
+
+	private static String sha1(byte[] data) throws IOException {
+		try {
+			return HashingService.toHex(MessageDigest.getInstance("SHA-1").digest(data));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+}
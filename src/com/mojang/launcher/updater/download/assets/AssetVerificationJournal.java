@@ -0,0 +1,153 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import com.mojang.launcher.updater.download.Downloadable;
+
+public class AssetVerificationJournal {
+	public static final boolean PARANOID = Boolean.getBoolean("mineshafter.paranoidAssets");
+	private static final int RECORD_SIZE = 20 + 8 + 8;
+	private static final Map<File, AssetVerificationJournal> journals = new HashMap<File, AssetVerificationJournal>();
+	private final File file;
+	private final Map<String, long[]> entries = new HashMap<String, long[]>();
+	private FileChannel channel;
+
+	private AssetVerificationJournal(File file) {
+		this.file = file;
+	}
+
+	public static synchronized AssetVerificationJournal forDirectory(File objectsDir) {
+		File file = new File(objectsDir, ".verified");
+		AssetVerificationJournal journal = journals.get(file);
+		if (journal == null) {
+			journal = new AssetVerificationJournal(file);
+			journal.load();
+			journals.put(file, journal);
+		}
+		return journal;
+	}
+
+	private void load() {
+		if (!this.file.isFile()) { return; }
+		int records = 0;
+		try {
+			// Not mapped, a live mapping keeps compact() from replacing the file on Windows
+			ByteBuffer buffer = ByteBuffer.wrap(FileUtils.readFileToByteArray(this.file));
+			byte[] hash = new byte[20];
+			while (buffer.remaining() >= RECORD_SIZE) {
+				buffer.get(hash);
+				this.entries.put(HashingService.toHex(hash), new long[] { buffer.getLong(), buffer.getLong() });
+				records++;
+			}
+			if (buffer.hasRemaining()) {
+				// A torn append from a run that died mid-write; later records have to start on a record boundary again
+				RandomAccessFile file = new RandomAccessFile(this.file, "rw");
+				try {
+					file.setLength((long) records * RECORD_SIZE);
+				} finally {
+					file.close();
+				}
+			}
+		} catch (IOException e) {
+			this.entries.clear();
+			FileUtils.deleteQuietly(this.file);
+			return;
+		}
+		if (records > Math.max(256, this.entries.size() * 2)) {
+			compact();
+		}
+	}
+
+	private void compact() {
+		File temp = new File(this.file.getPath() + ".tmp");
+		FileOutputStream outputStream = null;
+		try {
+			outputStream = new FileOutputStream(temp);
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 256);
+			for (Map.Entry<String, long[]> entry : this.entries.entrySet()) {
+				if (buffer.remaining() < RECORD_SIZE) {
+					buffer.flip();
+					outputStream.getChannel().write(buffer);
+					buffer.clear();
+				}
+				putRecord(buffer, entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+			}
+			buffer.flip();
+			outputStream.getChannel().write(buffer);
+			outputStream.close();
+			outputStream = null;
+			Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(temp);
+		} finally {
+			Downloadable.closeSilently(outputStream);
+		}
+	}
+
+	public synchronized boolean isVerified(String hash, BasicFileAttributes attributes) {
+		if (PARANOID) { return false; }
+		long[] entry = this.entries.get(hash.toLowerCase());
+		return (entry != null) && (entry[0] == attributes.size()) && (entry[1] == attributes.lastModifiedTime().toMillis());
+	}
+
+	public boolean verify(String hash, File file, BasicFileAttributes attributes) throws IOException {
+		if (!hash.equalsIgnoreCase(HashingService.getInstance().hash(file))) { return false; }
+		record(hash, attributes);
+		return true;
+	}
+
+	public void record(String hash, File file) throws IOException {
+		BasicFileAttributes attributes = readAttributes(file);
+		if (attributes != null) {
+			record(hash, attributes);
+		}
+	}
+
+	private synchronized void record(String hash, BasicFileAttributes attributes) throws IOException {
+		String key = hash.toLowerCase();
+		long size = attributes.size();
+		long modified = attributes.lastModifiedTime().toMillis();
+		long[] entry = this.entries.get(key);
+		if ((entry != null) && (entry[0] == size) && (entry[1] == modified)) { return; }
+		this.entries.put(key, new long[] { size, modified });
+		if (this.channel == null) {
+			this.channel = new FileOutputStream(this.file, true).getChannel();
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+		putRecord(buffer, key, size, modified);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+	}
+
+	public static BasicFileAttributes readAttributes(File file) throws IOException {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			return attributes.isRegularFile() ? attributes : null;
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	private static void putRecord(ByteBuffer buffer, String hash, long size, long modified) {
+		for (int i = 0; i < 40; i += 2) {
+			buffer.put((byte) Integer.parseInt(hash.substring(i, i + 2), 16));
+		}
+		buffer.putLong(size);
+		buffer.putLong(modified);
+	}
+}
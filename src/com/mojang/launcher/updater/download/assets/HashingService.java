@@ -0,0 +1,118 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class HashingService {
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final int BATCH_SIZE = 16;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static HashingService instance;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+	private final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	public HashingService(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	public static synchronized HashingService getInstance() {
+		if (instance == null) {
+			instance = new HashingService(Runtime.getRuntime().availableProcessors());
+		}
+		return instance;
+	}
+
+	public String hash(File file) throws IOException {
+		MessageDigest digest = this.digests.get();
+		digest.reset();
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			// Never mapped, a mapping outlives close() and Windows then refuses to delete or replace the file we just hashed
+			FileChannel channel = input.getChannel();
+			ByteBuffer buffer = this.buffers.get();
+			buffer.clear();
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		} finally {
+			input.close();
+		}
+		return toHex(digest.digest());
+	}
+
+	public Map<File, String> hashAll(Collection<File> files) {
+		List<File> list = new ArrayList<File>(files);
+		String[] results = new String[list.size()];
+		this.pool.invoke(new HashTask(list, results, 0, list.size()));
+		Map<File, String> result = new LinkedHashMap<File, String>();
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				result.put(list.get(i), results[i]);
+			}
+		}
+		return result;
+	}
+
+	public static String toHex(byte[] hash) {
+		char[] result = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			result[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+			result[i * 2 + 1] = HEX[hash[i] & 0xF];
+		}
+		return new String(result);
+	}
+
+	private class HashTask extends RecursiveAction {
+		private final List<File> files;
+		private final String[] results;
+		private final int from;
+		private final int to;
+
+		private HashTask(List<File> files, String[] results, int from, int to) {
+			this.files = files;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (this.to - this.from <= BATCH_SIZE) {
+				for (int i = this.from; i < this.to; i++) {
+					try {
+						this.results[i] = hash(this.files.get(i));
+					} catch (IOException localIOException) {}
+				}
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new HashTask(this.files, this.results, this.from, middle), new HashTask(this.files, this.results, middle, this.to));
+			}
+		}
+	}
+}
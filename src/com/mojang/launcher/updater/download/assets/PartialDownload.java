@@ -0,0 +1,238 @@
+package com.mojang.launcher.updater.download.assets;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+
+import com.mojang.launcher.updater.download.Downloadable;
+import com.mojang.launcher.updater.download.MonitoringInputStream;
+import com.mojang.launcher.updater.download.ProgressContainer;
+
+public class PartialDownload {
+	public static final long RESUME_THRESHOLD = 512 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private final File target;
+	private final File partFile;
+	private final File metaFile;
+	private final String expectedHash;
+	private final long expectedSize;
+	private final boolean resumable;
+	private MessageDigest digest;
+	private long length;
+
+	public PartialDownload(File target, String expectedHash, long expectedSize) {
+		this.target = target;
+		this.partFile = new File(target.getPath() + ".part");
+		this.metaFile = new File(target.getPath() + ".part.meta");
+		this.expectedHash = expectedHash;
+		this.expectedSize = expectedSize;
+		this.resumable = expectedSize >= RESUME_THRESHOLD;
+	}
+
+	public long prepare() throws IOException {
+		if ((!this.resumable) || (!this.partFile.isFile()) || (!getMeta().equals(readMeta()))) {
+			reset();
+			return 0L;
+		}
+		long onDisk = this.partFile.length();
+		if ((this.digest == null) || (this.length > onDisk)) {
+			// Nothing kept from an earlier attempt in this session; rebuild the digest state from the prefix once
+			this.digest = createDigest();
+			this.length = 0L;
+			InputStream inputStream = new FileInputStream(this.partFile);
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = inputStream.read(buffer)) != -1) {
+					this.digest.update(buffer, 0, read);
+					this.length += read;
+				}
+			} finally {
+				Downloadable.closeSilently(inputStream);
+			}
+		} else if (this.length < onDisk) {
+			// A write can fail half way; drop whatever the digest hasn't seen
+			RandomAccessFile file = new RandomAccessFile(this.partFile, "rw");
+			try {
+				file.setLength(this.length);
+			} finally {
+				file.close();
+			}
+		}
+		if (this.length > this.expectedSize) {
+			reset();
+		}
+		return this.length;
+	}
+
+	public void applyRange(HttpURLConnection connection) {
+		if (this.length > 0L) {
+			connection.setRequestProperty("Range", "bytes=" + this.length + "-");
+		}
+	}
+
+	public boolean receive(HttpURLConnection connection, ProgressContainer monitor) throws IOException {
+		int status = connection.getResponseCode();
+		if ((status == 416) && (this.length == this.expectedSize)) {
+			AssetDownloadEngine.discard(connection);
+			return false;
+		}
+		if (status / 100 != 2) {
+			AssetDownloadEngine.discard(connection);
+			if (status == 416) {
+				reset();
+			}
+			throw new RuntimeException("Server responded with " + status);
+		}
+		boolean append = (status == 206) && (this.length > 0L) && (getContentRangeStart(connection) == this.length);
+		if (!append) {
+			reset();
+		}
+		monitor.setTotal(this.expectedSize);
+		monitor.setCurrent(this.length);
+		InputStream inputStream = new MonitoringInputStream(connection.getInputStream(), monitor);
+		try {
+			write(inputStream, append);
+		} finally {
+			Downloadable.closeSilently(inputStream);
+		}
+		if (this.length < this.expectedSize) { throw new IOException("Connection closed after " + this.length + " of " + this.expectedSize + " bytes"); }
+		return true;
+	}
+
+	public String receiveInflated(HttpURLConnection connection, ProgressContainer monitor, long compressedSize) throws IOException {
+		int status = connection.getResponseCode();
+		if (status / 100 != 2) {
+			AssetDownloadEngine.discard(connection);
+			throw new RuntimeException("Server responded with " + status);
+		}
+		reset();
+		monitor.setTotal(compressedSize);
+		monitor.setCurrent(0L);
+		MessageDigest compressedDigest = createDigest();
+		InputStream inputStream = new DigestInputStream(new MonitoringInputStream(connection.getInputStream(), monitor), compressedDigest);
+		try {
+			write(new GZIPInputStream(inputStream, BUFFER_SIZE), false);
+			// The inflater may stop at the gzip trailer; the compressed hash has to cover the whole body
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (inputStream.read(buffer) != -1) {}
+		} finally {
+			Downloadable.closeSilently(inputStream);
+		}
+		return toHex(compressedDigest);
+	}
+
+	public void inflate(File compressed) throws IOException {
+		reset();
+		InputStream inputStream = new GZIPInputStream(new FileInputStream(compressed), BUFFER_SIZE);
+		try {
+			write(inputStream, false);
+		} finally {
+			Downloadable.closeSilently(inputStream);
+		}
+	}
+
+	private void write(InputStream inputStream, boolean append) throws IOException {
+		FileOutputStream outputStream = new FileOutputStream(this.partFile, append);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+				this.digest.update(buffer, 0, read);
+				this.length += read;
+			}
+		} finally {
+			Downloadable.closeSilently(outputStream);
+		}
+	}
+
+	public String getHash() {
+		try {
+			return toHex((MessageDigest) this.digest.clone());
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(MessageDigest digest) {
+		return String.format("%1$040x", new Object[] { new BigInteger(1, digest.digest()) });
+	}
+
+	public long getExpectedSize() {
+		return this.expectedSize;
+	}
+
+	public void commit() throws IOException {
+		try {
+			Files.move(this.partFile.toPath(), this.target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(this.partFile.toPath(), this.target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		FileUtils.deleteQuietly(this.metaFile);
+		this.digest = null;
+		this.length = 0L;
+	}
+
+	public void discard() {
+		FileUtils.deleteQuietly(this.partFile);
+		FileUtils.deleteQuietly(this.metaFile);
+		this.digest = null;
+		this.length = 0L;
+	}
+
+	private void reset() throws IOException {
+		discard();
+		this.digest = createDigest();
+		FileUtils.touch(this.partFile);
+		if (this.resumable) {
+			FileUtils.writeStringToFile(this.metaFile, getMeta(), Charsets.UTF_8);
+		}
+	}
+
+	private String getMeta() {
+		return this.expectedHash.toLowerCase() + " " + this.expectedSize;
+	}
+
+	private String readMeta() {
+		try {
+			return this.metaFile.isFile() ? FileUtils.readFileToString(this.metaFile, Charsets.UTF_8).trim() : "";
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	private static long getContentRangeStart(HttpURLConnection connection) {
+		String range = connection.getHeaderField("Content-Range");
+		if ((range == null) || (!range.startsWith("bytes "))) { return -1L; }
+		int dash = range.indexOf('-');
+		try {
+			return dash < 0 ? -1L : Long.parseLong(range.substring(6, dash).trim());
+		} catch (NumberFormatException e) {
+			return -1L;
+		}
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.FileFilterUtils;
+import org.apache.commons.io.filefilter.IOFileFilter;
+import org.apache.commons.io.filefilter.NameFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.updater.download.assets.HashingService;
+
+public class AssetMigration {
+	private static final Logger LOGGER = LogManager.getLogger();
+	private static final String MARKER = ".migrated";
+	private static final String JOURNAL = ".migration";
+	private static final int BATCH_SIZE = 256;
+	private static final String[] KEPT = { "indexes", "objects", "virtual", "skins" };
+	private final File assetsDir;
+	private final File objectsDir;
+
+	public AssetMigration(File assetsDir) {
+		this.assetsDir = assetsDir;
+		this.objectsDir = new File(assetsDir, "objects");
+	}
+
+	public boolean isComplete() {
+		// Old launchers only ever add top level directories, which bumps the mtime the marker was stamped with
+		File marker = new File(this.objectsDir, MARKER);
+		return (!this.assetsDir.isDirectory()) || (marker.lastModified() == this.assetsDir.lastModified());
+	}
+
+	public void migrate() throws IOException {
+		if (isComplete()) { return; }
+		long start = System.nanoTime();
+		IOFileFilter migratableFilter = FileFilterUtils.notFileFilter(new NameFileFilter(KEPT));
+		List<File> files = new ArrayList<File>(FileUtils.listFiles(this.assetsDir, TrueFileFilter.TRUE, migratableFilter));
+		int migrated = 0;
+		if (!files.isEmpty()) {
+			this.objectsDir.mkdirs();
+			File journalFile = new File(this.objectsDir, JOURNAL);
+			Map<String, String> journal = readJournal(journalFile);
+			ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+			Writer journalWriter = new OutputStreamWriter(new FileOutputStream(journalFile, true), Charsets.UTF_8);
+			try {
+				for (int i = 0; i < files.size(); i += BATCH_SIZE) {
+					migrated += migrateBatch(files.subList(i, Math.min(files.size(), i + BATCH_SIZE)), journal, journalWriter, executor);
+				}
+			} finally {
+				journalWriter.close();
+				executor.shutdownNow();
+			}
+		}
+		File[] assets = this.assetsDir.listFiles();
+		if (assets != null) {
+			for (File file : assets) {
+				if (!isKept(file.getName())) {
+					LOGGER.info("Cleaning up old assets directory {} after migration", new Object[] { file });
+					FileUtils.deleteQuietly(file);
+				}
+			}
+		}
+		FileUtils.deleteQuietly(new File(this.objectsDir, JOURNAL));
+		File marker = new File(this.objectsDir, MARKER);
+		FileUtils.touch(marker);
+		marker.setLastModified(this.assetsDir.lastModified());
+		LOGGER.info("Migrated {} old assets in {} ms", new Object[] { Integer.valueOf(migrated), Long.valueOf((System.nanoTime() - start) / 1000000L) });
+	}
+
+	private int migrateBatch(List<File> batch, Map<String, String> journal, Writer journalWriter, ExecutorService executor) throws IOException {
+		Map<File, String> hashes = new HashMap<File, String>();
+		List<File> unhashed = new ArrayList<File>();
+		for (File file : batch) {
+			String hash = (String) journal.get(getJournalKey(file));
+			if (hash != null) {
+				hashes.put(file, hash);
+			} else {
+				unhashed.add(file);
+			}
+		}
+		for (Map.Entry<File, String> entry : HashingService.getInstance().hashAll(unhashed).entrySet()) {
+			hashes.put(entry.getKey(), entry.getValue());
+			journalWriter.write(entry.getValue() + " " + getJournalKey((File) entry.getKey()) + "\n");
+		}
+		// An interrupted run picks the hashes back up instead of reading every file again
+		journalWriter.flush();
+		// Copies of the same content share a destination, so each one is written by a single task
+		Map<String, List<File>> sources = new HashMap<String, List<File>>();
+		for (Map.Entry<File, String> entry : hashes.entrySet()) {
+			List<File> files = sources.get(entry.getValue());
+			if (files == null) {
+				files = new ArrayList<File>();
+				sources.put(entry.getValue(), files);
+			}
+			files.add(entry.getKey());
+		}
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (final Map.Entry<String, List<File>> entry : sources.entrySet()) {
+			results.add(executor.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					return Boolean.valueOf(migrate((List<File>) entry.getValue(), (String) entry.getKey()));
+				}
+			}));
+		}
+		int migrated = 0;
+		for (Future<Boolean> result : results) {
+			try {
+				if (result.get().booleanValue()) {
+					migrated++;
+				}
+			} catch (ExecutionException e) {
+				LOGGER.error("Couldn't migrate old asset", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while migrating old assets", e);
+			}
+		}
+		return migrated;
+	}
+
+	private boolean migrate(List<File> files, String hash) {
+		File destinationFile = new File(this.objectsDir, hash.substring(0, 2) + "/" + hash);
+		boolean copied = false;
+		if (!destinationFile.exists()) {
+			File file = (File) files.get(0);
+			LOGGER.info("Migrated old asset {} into {}", new Object[] { file, destinationFile });
+			try {
+				FileUtils.copyFile(file, destinationFile);
+				copied = true;
+			} catch (IOException e) {
+				LOGGER.error("Couldn't migrate old asset", e);
+				FileUtils.deleteQuietly(destinationFile);
+				return false;
+			}
+		}
+		for (File file : files) {
+			FileUtils.deleteQuietly(file);
+		}
+		return copied;
+	}
+
+	private Map<String, String> readJournal(File journalFile) {
+		Map<String, String> result = new HashMap<String, String>();
+		if (!journalFile.isFile()) { return result; }
+		try {
+			for (String line : FileUtils.readLines(journalFile, Charsets.UTF_8)) {
+				int space = line.indexOf(' ');
+				if (space == 40) {
+					result.put(line.substring(space + 1), line.substring(0, space));
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Couldn't read asset migration journal, starting over", e);
+		}
+		return result;
+	}
+
+	private String getJournalKey(File file) {
+		return file.length() + " " + file.lastModified() + " " + file.getAbsolutePath();
+	}
+
+	private static boolean isKept(String name) {
+		for (String kept : KEPT) {
+			if (kept.equals(name)) { return true; }
+		}
+		return false;
+	}
+}
@@ -0,0 +1,52 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.lang3.text.StrLookup;
+
+import com.mojang.launcher.updater.download.assets.AssetIndexStore;
+import com.mojang.launcher.updater.download.assets.AssetPackStore;
+
+public abstract class AssetPathLookup extends StrLookup<String> {
+	private static final String PREFIX = "asset=";
+	private final Map<String, String> variables;
+	private final File objectsDir;
+	private AssetIndexStore index;
+	private boolean loaded;
+
+	public AssetPathLookup(Map<String, String> variables, File objectsDir) {
+		this.variables = variables;
+		this.objectsDir = objectsDir;
+	}
+
+	public String lookup(String key) {
+		if (key == null) { return null; }
+		if (!key.startsWith(PREFIX)) { return (String) this.variables.get(key); }
+		AssetIndexStore index = getIndex();
+		if (index == null) { return null; }
+		int entry = index.find(key.substring(PREFIX.length()));
+		if (entry < 0) { return null; }
+		File object = new File(this.objectsDir, index.getObjectPath(entry));
+		AssetPackStore pack = AssetPackStore.forDirectory(this.objectsDir);
+		if ((pack != null) && (!object.isFile())) {
+			try {
+				pack.materialise(index.getHash(entry), object);
+			} catch (IOException localIOException) {}
+		}
+		return object.getAbsolutePath();
+	}
+
+	private synchronized AssetIndexStore getIndex() {
+		if (!this.loaded) {
+			this.loaded = true;
+			try {
+				this.index = loadIndex();
+			} catch (IOException localIOException) {}
+		}
+		return this.index;
+	}
+
+	protected abstract AssetIndexStore loadIndex() throws IOException;
+}
@@ -0,0 +1,77 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.Charsets;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.updater.download.assets.HashingService;
+
+public class ClassDataSharing {
+	private static final Logger LOGGER = LogManager.getLogger();
+	public static final boolean ENABLED = Boolean.getBoolean("mineshafter.classDataSharing");
+	private static final int DYNAMIC_ARCHIVE_VERSION = 13;
+	private static final int AUTO_ARCHIVE_VERSION = 19;
+	private final File baseDir;
+
+	public ClassDataSharing(File workingDirectory) {
+		this.baseDir = new File(workingDirectory, "cds");
+	}
+
+	public List<String> getArguments(JavaRuntimeInfo runtime, String classPath) {
+		List<String> result = new ArrayList<String>();
+		int javaVersion = runtime.getFeatureVersion();
+		if (javaVersion < DYNAMIC_ARCHIVE_VERSION) {
+			LOGGER.info("Not using class data sharing, {} doesn't support dynamic archives", new Object[] { runtime });
+			return result;
+		}
+		File archive;
+		try {
+			archive = new File(this.baseDir, computeKey(runtime, classPath) + ".jsa");
+		} catch (IOException e) {
+			LOGGER.warn("Couldn't compute class data sharing key", e);
+			return result;
+		}
+		this.baseDir.mkdirs();
+		if (javaVersion >= AUTO_ARCHIVE_VERSION) {
+			// Newer runtimes validate the archive themselves and rebuild it at exit when it's stale or missing
+			result.add("-XX:+AutoCreateSharedArchive");
+			result.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+		} else if (archive.isFile()) {
+			result.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+		} else {
+			LOGGER.info("Dumping class data sharing archive to {} when the game exits", new Object[] { archive });
+			result.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+		}
+		result.add("-Xshare:auto");
+		return result;
+	}
+
+	private static String computeKey(JavaRuntimeInfo runtime, String classPath) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			update(digest, runtime.getExecutable().getAbsolutePath());
+			update(digest, runtime.getExecutable().length() + " " + runtime.getExecutable().lastModified());
+			update(digest, String.valueOf(runtime.getRelease()));
+			for (String entry : classPath.split(File.pathSeparator)) {
+				File file = new File(entry);
+				// The runtime refuses archives whose jars changed size or mtime, so those are what the key tracks
+				update(digest, file.getAbsolutePath() + " " + file.length() + " " + file.lastModified());
+			}
+			return HashingService.toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(Charsets.UTF_8));
+		digest.update((byte) '\n');
+	}
+}
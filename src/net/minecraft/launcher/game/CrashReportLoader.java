@@ -0,0 +1,93 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+public class CrashReportLoader {
+	private static final int HEAD_BYTES = 64 * 1024;
+	private static final int TAIL_BYTES = 64 * 1024;
+	private static final int LINE_SEARCH_BYTES = 4096;
+	private static final int MAX_CHARACTER_BYTES = 4;
+	private final File file;
+	private final Charset charset = Charset.defaultCharset();
+
+	public CrashReportLoader(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	public String getPreview() throws IOException {
+		// Only the two ends are read, and the file is closed before returning so the game can overwrite it on the next crash
+		RandomAccessFile input = new RandomAccessFile(this.file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			long length = channel.size();
+			if (length <= HEAD_BYTES + TAIL_BYTES) { return decode(read(channel, 0L, (int) length), true); }
+			long tailOffset = length - TAIL_BYTES;
+			ByteBuffer head = read(channel, 0L, (int) Math.min(HEAD_BYTES + LINE_SEARCH_BYTES, tailOffset));
+			int headEnd = findLineStart(head, HEAD_BYTES);
+			head.limit(headEnd < 0 ? HEAD_BYTES : headEnd);
+			String headText = decode(head, headEnd >= 0);
+			ByteBuffer tail = read(channel, tailOffset, TAIL_BYTES);
+			int tailStart = findLineStart(tail, 0);
+			tail.position(tailStart < 0 ? findCharacterStart(tail) : tailStart);
+			long omitted = tailOffset + tail.position() - head.position();
+			return headText + "\n[" + omitted + " bytes omitted, the full report is at " + this.file.getAbsolutePath() + "]\n\n" + decode(tail, true);
+		} finally {
+			input.close();
+		}
+	}
+
+	private String decode(ByteBuffer bytes, boolean complete) {
+		// Without endOfInput the decoder leaves a character that was cut in half in the buffer instead of mangling it
+		CharsetDecoder decoder = this.charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer result = CharBuffer.allocate((int) Math.ceil(bytes.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+		decoder.decode(bytes, result, complete);
+		if (complete) {
+			decoder.flush(result);
+		}
+		result.flip();
+		return result.toString().replace("\r\n", "\n");
+	}
+
+	private int findCharacterStart(ByteBuffer bytes) {
+		CharsetDecoder decoder = this.charset.newDecoder();
+		for (int start = 0; (start < MAX_CHARACTER_BYTES) && (start < bytes.limit()); start++) {
+			ByteBuffer probe = bytes.duplicate();
+			probe.position(start);
+			probe.limit(Math.min(bytes.limit(), start + 4 * MAX_CHARACTER_BYTES));
+			decoder.reset();
+			if (!decoder.decode(probe, CharBuffer.allocate(4 * MAX_CHARACTER_BYTES), false).isError()) { return start; }
+		}
+		return 0;
+	}
+
+	private static int findLineStart(ByteBuffer bytes, int offset) {
+		int limit = Math.min(bytes.limit(), offset + LINE_SEARCH_BYTES);
+		for (int i = offset; i < limit; i++) {
+			if (bytes.get(i) == '\n') { return i + 1; }
+		}
+		return -1;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+		ByteBuffer result = ByteBuffer.allocate(length);
+		while (result.hasRemaining()) {
+			if (channel.read(result, offset + result.position()) < 0) {
+				break;
+			}
+		}
+		result.flip();
+		return result;
+	}
+}
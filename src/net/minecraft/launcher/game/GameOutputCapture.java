@@ -0,0 +1,134 @@
+package net.minecraft.launcher.game;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+
+import com.mojang.launcher.game.process.GameOutputLogProcessor;
+import com.mojang.launcher.game.process.GameProcess;
+
+public class GameOutputCapture implements GameOutputLogProcessor {
+	public static final int DEFAULT_CAPACITY = 4096;
+	private static final long FLUSH_INTERVAL = 100L;
+	private final GameOutputLogProcessor delegate;
+	private final String crashMarker;
+	private final String[] lines;
+	private final AtomicLong written = new AtomicLong();
+	private final ScheduledExecutorService flusher;
+	private final JTextComponent display;
+	private final AtomicBoolean trimPending = new AtomicBoolean();
+	private final Runnable trimmer = new Runnable() {
+		public void run() {
+			GameOutputCapture.this.trimPending.set(false);
+			trimDisplay();
+		}
+	};
+	private volatile GameProcess process;
+	private volatile String crashText;
+	private long flushed;
+	private long dropped;
+
+	public GameOutputCapture(GameOutputLogProcessor delegate, String crashMarker) {
+		this(delegate, crashMarker, Math.max(16, Integer.getInteger("mineshafter.outputLines", DEFAULT_CAPACITY).intValue()));
+	}
+
+	public GameOutputCapture(GameOutputLogProcessor delegate, String crashMarker, int capacity) {
+		this.delegate = delegate;
+		this.crashMarker = crashMarker;
+		this.lines = new String[capacity];
+		// The output tab keeps whatever it is handed, so the same bound is applied to what it shows
+		this.display = delegate instanceof Component ? findDisplay((Component) delegate) : null;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Game Output Flusher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.flusher.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				flush();
+			}
+		}, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	public void onGameOutput(GameProcess process, String line) {
+		// Only the process monitor thread writes, so publishing the new count is all the synchronisation the ring needs
+		this.process = process;
+		long index = this.written.get();
+		this.lines[(int) (index % this.lines.length)] = line;
+		this.written.lazySet(index + 1L);
+		int pos = line.lastIndexOf(this.crashMarker);
+		if ((pos >= 0) && (pos < line.length() - this.crashMarker.length() - 1)) {
+			this.crashText = line.substring(pos + this.crashMarker.length()).trim();
+		}
+	}
+
+	public String getCrashText() {
+		return this.crashText;
+	}
+
+	public synchronized void close() {
+		this.flusher.shutdown();
+		flush();
+	}
+
+	private synchronized void flush() {
+		long available = this.written.get();
+		if (available - this.flushed > this.lines.length) {
+			this.dropped += available - this.lines.length - this.flushed;
+			this.flushed = available - this.lines.length;
+		}
+		while (this.flushed < available) {
+			String line = this.lines[(int) (this.flushed % this.lines.length)];
+			// The writer may have lapped us while we were handing lines over
+			if (this.written.get() - this.flushed >= this.lines.length) {
+				this.dropped++;
+			} else {
+				if (this.dropped > 0L) {
+					this.delegate.onGameOutput(this.process, "[Launcher] " + this.dropped + " lines of game output were skipped");
+					this.dropped = 0L;
+				}
+				this.delegate.onGameOutput(this.process, line);
+			}
+			this.flushed++;
+		}
+		if ((this.display != null) && (this.trimPending.compareAndSet(false, true))) {
+			// Queued behind the tab's own appends, so it sees everything handed over so far
+			SwingUtilities.invokeLater(this.trimmer);
+		}
+	}
+
+	private void trimDisplay() {
+		Document document = this.display.getDocument();
+		Element root = document.getDefaultRootElement();
+		// The last element is the empty line after the final newline
+		int excess = root.getElementCount() - 1 - this.lines.length;
+		if (excess <= 0) { return; }
+		try {
+			document.remove(0, root.getElement(excess - 1).getEndOffset());
+		} catch (BadLocationException localBadLocationException) {}
+	}
+
+	private static JTextComponent findDisplay(Component component) {
+		if ((component instanceof JTextComponent)) { return (JTextComponent) component; }
+		if ((component instanceof Container)) {
+			for (Component child : ((Container) component).getComponents()) {
+				JTextComponent result = findDisplay(child);
+				if (result != null) { return result; }
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,131 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Properties;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.base.Objects;
+import com.mojang.launcher.OperatingSystem;
+
+public class JavaRuntimeInfo {
+	private final File executable;
+	private final File home;
+	private final String version;
+	private final String release;
+	private final String architecture;
+
+	private JavaRuntimeInfo(File executable, File home, String version, String release, String architecture) {
+		this.executable = executable;
+		this.home = home;
+		this.version = version;
+		this.release = release;
+		this.architecture = architecture;
+	}
+
+	public static JavaRuntimeInfo forExecutable(String javaPath) {
+		File executable = locate(javaPath);
+		File home = executable == null ? null : getHome(executable.getParentFile().getParentFile());
+		String version = null;
+		String release = null;
+		String architecture = null;
+		if (home != null) {
+			File releaseFile = new File(home, "release");
+			if (releaseFile.isFile()) {
+				try {
+					release = FileUtils.readFileToString(releaseFile, Charsets.UTF_8);
+					Properties properties = new Properties();
+					properties.load(new StringReader(release));
+					version = StringUtils.strip(properties.getProperty("JAVA_VERSION"), "\"");
+					architecture = StringUtils.strip(properties.getProperty("OS_ARCH"), "\"");
+				} catch (IOException localIOException) {}
+			}
+			// Our own runtime may be a JRE without a release file
+			if ((version == null) || (architecture == null)) {
+				try {
+					if (home.equals(getHome(new File(System.getProperty("java.home")).getCanonicalFile()))) {
+						version = (String) Objects.firstNonNull(version, System.getProperty("java.version"));
+						architecture = (String) Objects.firstNonNull(architecture, System.getProperty("os.arch"));
+					}
+				} catch (IOException localIOException) {}
+			}
+		}
+		return new JavaRuntimeInfo(executable, home, version, release, architecture);
+	}
+
+	private static File locate(String javaPath) {
+		File file = new File(javaPath);
+		if ((!file.isFile()) && (file.getParent() == null)) {
+			String path = System.getenv("PATH");
+			if (path != null) {
+				for (String entry : path.split(File.pathSeparator)) {
+					File candidate = new File(entry, javaPath);
+					if ((!candidate.isFile()) && (OperatingSystem.getCurrentPlatform() == OperatingSystem.WINDOWS)) {
+						candidate = new File(entry, javaPath + ".exe");
+					}
+					if (candidate.isFile()) {
+						file = candidate;
+						break;
+					}
+				}
+			}
+		}
+		if (!file.isFile()) { return null; }
+		try {
+			// Follows the /usr/bin/java style alternatives links back into the real runtime
+			file = file.toPath().toRealPath().toFile();
+		} catch (IOException localIOException) {}
+		return (file.getParentFile() == null) || (file.getParentFile().getParentFile() == null) ? null : file;
+	}
+
+	private static File getHome(File javaHome) {
+		// Java 8 reports the embedded jre directory of a JDK as java.home
+		if ((javaHome.getName().equals("jre")) && (new File(javaHome.getParentFile(), "release").isFile())) { return javaHome.getParentFile(); }
+		return javaHome;
+	}
+
+	public File getExecutable() {
+		return this.executable;
+	}
+
+	public File getHome() {
+		return this.home;
+	}
+
+	public String getVersion() {
+		return this.version;
+	}
+
+	public String getRelease() {
+		return this.release;
+	}
+
+	public String getArchitecture() {
+		return this.architecture;
+	}
+
+	public boolean is32Bit() {
+		if (this.architecture == null) { return false; }
+		return this.architecture.matches("x86|i[3-6]86|arm|armhf|ppc|sparc");
+	}
+
+	public int getFeatureVersion() {
+		if (this.version == null) { return 0; }
+		String[] parts = this.version.split("[._+-]");
+		try {
+			int major = Integer.parseInt(parts[0]);
+			if ((major == 1) && (parts.length > 1)) { return Integer.parseInt(parts[1]); }
+			return major;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	public String toString() {
+		return "JavaRuntimeInfo{home=" + this.home + ", version=" + this.version + ", architecture=" + this.architecture + '}';
+	}
+}
@@ -0,0 +1,96 @@
+package net.minecraft.launcher.game;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.launcher.updater.CompleteMinecraftVersion;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class JvmErgonomics {
+	private static final Logger LOGGER = LogManager.getLogger();
+	private static final long MEGABYTE = 1024L * 1024L;
+	private static final long MIN_HEAP = 1024L;
+	private static final long LEGACY_HEAP = 2048L;
+	private static final long MODERN_HEAP = 4096L;
+	private static final long MAX_HEAP = 8192L;
+	private static final int MODERN_JAVA = 16;
+	private static final int ZGC_JAVA = 21;
+	private static final int ZGC_DEFAULT_GENERATIONAL = 23;
+	private final JavaRuntimeInfo runtime;
+	private final int requiredJava;
+	private final long physicalMemory;
+	private final int processors;
+	private final boolean is32Bit;
+
+	public JvmErgonomics(JavaRuntimeInfo runtime, CompleteMinecraftVersion version) {
+		this(runtime, version.getJavaVersion() == null ? 0 : version.getJavaVersion().getMajorVersion(), getPhysicalMemory(), Runtime.getRuntime().availableProcessors(), is32Bit(runtime));
+	}
+
+	public JvmErgonomics(JavaRuntimeInfo runtime, int requiredJava, long physicalMemory, int processors, boolean is32Bit) {
+		this.runtime = runtime;
+		this.requiredJava = requiredJava;
+		this.physicalMemory = physicalMemory;
+		this.processors = processors;
+		this.is32Bit = is32Bit;
+	}
+
+	public List<String> getArguments() {
+		List<String> result = new ArrayList<String>();
+		int javaVersion = this.runtime.getFeatureVersion();
+		if ((this.requiredJava > 0) && (javaVersion > 0) && (javaVersion < this.requiredJava)) {
+			LOGGER.warn("This version wants Java " + this.requiredJava + " but " + this.runtime.getExecutable() + " is Java " + javaVersion);
+		}
+		long heap = getHeapSize();
+		result.add("-Xmx" + heap + "M");
+		if ((this.is32Bit) && (javaVersion >= 1) && (javaVersion <= 8)) {
+			// CMS and its incremental mode are gone from newer runtimes, which would refuse to start with them
+			result.add("-XX:+UseConcMarkSweepGC");
+			result.add("-XX:+CMSIncrementalMode");
+			result.add("-XX:-UseAdaptiveSizePolicy");
+			result.add("-Xmn128M");
+		} else if ((this.is32Bit) && (javaVersion == 0)) {
+			LOGGER.warn("Couldn't tell which Java " + this.runtime.getExecutable() + " is, leaving the collector at its default");
+		} else if ((javaVersion >= ZGC_JAVA) && (heap >= MODERN_HEAP) && (this.processors >= 4)) {
+			result.add("-XX:+UseZGC");
+			if (javaVersion < ZGC_DEFAULT_GENERATIONAL) {
+				result.add("-XX:+ZGenerational");
+			}
+		} else {
+			result.add("-XX:+UseG1GC");
+			result.add("-XX:MaxGCPauseMillis=50");
+			if (javaVersion >= 8) {
+				result.add("-XX:+ParallelRefProcEnabled");
+			}
+		}
+		LOGGER.info("Picked JVM arguments {} for {} ({} MB physical memory, {} processors, version wants Java {})", new Object[] { StringUtils.join(result, " "), this.runtime, Long.valueOf(this.physicalMemory / MEGABYTE),
+				Integer.valueOf(this.processors), this.requiredJava > 0 ? Integer.valueOf(this.requiredJava) : "?" });
+		return result;
+	}
+
+	private long getHeapSize() {
+		if (this.is32Bit) { return 512L; }
+		long heap = (this.requiredJava >= MODERN_JAVA) || (this.runtime.getFeatureVersion() >= MODERN_JAVA) ? MODERN_HEAP : LEGACY_HEAP;
+		if (this.physicalMemory > 0L) {
+			// Leaves at least half of the machine to the OS, the driver and the launcher itself
+			heap = Math.min(heap, this.physicalMemory / MEGABYTE / 2L);
+		}
+		return Math.max(MIN_HEAP, Math.min(MAX_HEAP, heap));
+	}
+
+	private static boolean is32Bit(JavaRuntimeInfo runtime) {
+		if (runtime.getArchitecture() != null) { return runtime.is32Bit(); }
+		// Without a release file the only hint left is our own runtime, a 32-bit launcher usually starts a 32-bit game
+		return "32".equals(System.getProperty("sun.arch.data.model"));
+	}
+
+	private static long getPhysicalMemory() {
+		OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+		if ((bean instanceof com.sun.management.OperatingSystemMXBean)) { return ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize(); }
+		return -1L;
+	}
+}
@@ -0,0 +1,264 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import net.minecraft.launcher.Launcher;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.updater.DateTypeAdapter;
+import com.mojang.launcher.updater.download.assets.AssetObjectCollector;
+import com.mojang.launcher.updater.download.assets.AssetPackStore;
+
+public class LauncherJanitor {
+	private static final Logger LOGGER = LogManager.getLogger();
+	private static final Pattern NATIVES_PATTERN = Pattern.compile(".+-natives-\\d+");
+	private static final Pattern TEMP_PATTERN = Pattern.compile(".+\\.tmp-\\d+");
+	private static final long SWEEP_DELAY = 30L;
+	private static final long EXIT_TIMEOUT = 30L;
+	private static final long ORPHAN_AGE = TimeUnit.HOURS.toMillis(6L);
+	private static final long NATIVES_MAX_AGE = TimeUnit.DAYS.toMillis(Math.max(1, Integer.getInteger("mineshafter.nativesMaxAgeDays", 30).intValue()));
+	private static final long VIRTUAL_MAX_AGE = TimeUnit.DAYS.toMillis(Math.max(1, Integer.getInteger("mineshafter.virtualAssetsMaxAgeDays", 30).intValue()));
+	private static final long[] RETRY_DELAYS = { 0L, 5L, 30L, 120L };
+	private static final long PAUSE = 20L;
+	private static LauncherJanitor instance;
+	private final ScheduledExecutorService executor;
+	private final DateTypeAdapter dateAdapter = new DateTypeAdapter();
+	private Runnable sweepTask;
+	private ScheduledFuture<?> sweepFuture;
+	private boolean swept;
+
+	private LauncherJanitor() {
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Launcher Janitor");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	public static synchronized LauncherJanitor getInstance() {
+		if (instance == null) {
+			instance = new LauncherJanitor();
+		}
+		return instance;
+	}
+
+	public void delete(File dir) {
+		delete(dir, 0);
+	}
+
+	private void delete(final File dir, final int attempt) {
+		this.executor.schedule(new Runnable() {
+			public void run() {
+				if ((!dir.exists()) || (FileUtils.deleteQuietly(dir))) {
+					LOGGER.debug("Deleted " + dir);
+				} else if (attempt + 1 < RETRY_DELAYS.length) {
+					// The game process may still be holding the natives open for a moment after it exits
+					LauncherJanitor.this.delete(dir, attempt + 1);
+				} else {
+					LOGGER.warn("Couldn't delete " + dir + ", it will be picked up by the next sweep");
+				}
+			}
+		}, RETRY_DELAYS[attempt], TimeUnit.SECONDS);
+	}
+
+	public static void launcherStarted(Launcher launcher) {
+		if ((launcher == null) || (launcher.getLauncher() == null)) { return; }
+		getInstance().scheduleSweep(launcher.getLauncher().getWorkingDirectory());
+	}
+
+	public synchronized void scheduleSweep(File workingDirectory) {
+		if ((this.swept) || (this.sweepTask != null)) { return; }
+		// Only scheduled once no game is running, and cancelled again as soon as the next one starts
+		submitSweep(workingDirectory, SWEEP_DELAY);
+	}
+
+	public void sweepBeforeExit(File workingDirectory) {
+		Future<?> future;
+		synchronized (this) {
+			if (this.swept) { return; }
+			if ((this.sweepFuture != null) && (this.sweepFuture.getDelay(TimeUnit.MILLISECONDS) <= 0L)) {
+				// Already under way, starting over would only throw away what it has done
+				future = this.sweepFuture;
+			} else {
+				cancelSweep();
+				future = submitSweep(workingDirectory, 0L);
+			}
+		}
+		// The game window is gone and the launcher is hidden, so nobody waits on this but the exit itself
+		try {
+			future.get(EXIT_TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			LOGGER.warn("Cleaning up the working directory took longer than {} s, exiting anyway", new Object[] { Long.valueOf(EXIT_TIMEOUT) });
+		} catch (ExecutionException localExecutionException) {
+		} catch (CancellationException localCancellationException) {
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Future<?> submitSweep(final File workingDirectory, long delay) {
+		this.sweepTask = new Runnable() {
+			public void run() {
+				boolean completed = false;
+				try {
+					sweep(workingDirectory);
+					completed = true;
+				} catch (InterruptedException e) {
+					LOGGER.info("Postponed cleaning up the working directory, a game is starting");
+				} catch (Throwable e) {
+					LOGGER.warn("Couldn't clean up the working directory", e);
+					completed = true;
+				} finally {
+					sweepFinished(this, completed);
+				}
+			}
+		};
+		this.sweepFuture = this.executor.schedule(this.sweepTask, delay, TimeUnit.SECONDS);
+		return this.sweepFuture;
+	}
+
+	public synchronized void cancelSweep() {
+		if (this.sweepFuture == null) { return; }
+		this.sweepFuture.cancel(true);
+		this.sweepFuture = null;
+		this.sweepTask = null;
+	}
+
+	private synchronized void sweepFinished(Runnable task, boolean completed) {
+		if (completed) {
+			this.swept = true;
+		}
+		if (this.sweepTask == task) {
+			this.sweepTask = null;
+			this.sweepFuture = null;
+		}
+	}
+
+	private void sweep(File workingDirectory) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		int deleted = 0;
+		File[] versions = new File(workingDirectory, "versions").listFiles(DirectoryFilter.INSTANCE);
+		if (versions != null) {
+			for (File version : versions) {
+				deleted += deleteStale(version.listFiles(DirectoryFilter.INSTANCE), NATIVES_PATTERN, start - ORPHAN_AGE);
+			}
+		}
+		deleted += deleteStale(new File(workingDirectory, "natives").listFiles(DirectoryFilter.INSTANCE), TEMP_PATTERN, start - ORPHAN_AGE);
+		deleted += evictNatives(new NativesCache(workingDirectory), start - NATIVES_MAX_AGE);
+		File[] virtualRoots = new File(workingDirectory, "assets/virtual").listFiles(DirectoryFilter.INSTANCE);
+		if (virtualRoots != null) {
+			for (File virtualRoot : virtualRoots) {
+				if (getLastUsed(virtualRoot) < start - VIRTUAL_MAX_AGE) {
+					LOGGER.info("Evicting unused virtual assets folder " + virtualRoot);
+					if (FileUtils.deleteQuietly(virtualRoot)) {
+						deleted++;
+					}
+					Thread.sleep(PAUSE);
+				}
+			}
+		}
+		LOGGER.info("Cleaned up {} stale directories in {} ms", new Object[] { Integer.valueOf(deleted), Long.valueOf(System.currentTimeMillis() - start) });
+		if (Thread.interrupted()) { throw new InterruptedException(); }
+		if (AssetObjectCollector.isEnabled()) {
+			try {
+				new AssetObjectCollector(new File(workingDirectory, "assets"), AssetObjectCollector.QUOTA).collect();
+			} catch (IOException e) {
+				if (Thread.currentThread().isInterrupted()) { throw new InterruptedException(); }
+				LOGGER.warn("Couldn't collect unused assets", e);
+			}
+		}
+		AssetPackStore pack = AssetPackStore.forDirectory(new File(workingDirectory, "assets/objects"));
+		if (Thread.interrupted()) { throw new InterruptedException(); }
+		if (pack != null) {
+			int invalidated = VirtualAssetsBuilder.invalidateSymlinked(new File(workingDirectory, "assets/virtual"));
+			if (invalidated > 0) {
+				LOGGER.info("Marked {} symlinked virtual assets folders for rebuilding before packing", new Object[] { Integer.valueOf(invalidated) });
+			}
+			try {
+				int packed = pack.packLooseObjects(new File(workingDirectory, "assets/indexes"));
+				if (packed > 0) {
+					LOGGER.info("Moved {} small assets into the pack", new Object[] { Integer.valueOf(packed) });
+				}
+			} catch (IOException e) {
+				if (Thread.currentThread().isInterrupted()) { throw new InterruptedException(); }
+				LOGGER.warn("Couldn't pack assets", e);
+			}
+		}
+	}
+
+	private int deleteStale(File[] dirs, Pattern pattern, long cutoff) throws InterruptedException {
+		if (dirs == null) { return 0; }
+		int deleted = 0;
+		for (File dir : dirs) {
+			if ((!pattern.matcher(dir.getName()).matches()) || (dir.lastModified() >= cutoff)) {
+				continue;
+			}
+			LOGGER.info("Deleting orphaned " + dir);
+			if (FileUtils.deleteQuietly(dir)) {
+				deleted++;
+			}
+			// Trickles the deletes out instead of saturating the disk in one burst
+			Thread.sleep(PAUSE);
+		}
+		return deleted;
+	}
+
+	private int evictNatives(NativesCache cache, long cutoff) throws InterruptedException {
+		int deleted = 0;
+		for (String key : cache.getKeys()) {
+			if (cache.getLastUsed(key) >= cutoff) {
+				continue;
+			}
+			LOGGER.info("Evicting unused natives " + new File(cache.getBaseDir(), key));
+			try {
+				if (cache.evict(key)) {
+					deleted++;
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Couldn't evict natives " + key, e);
+			}
+			Thread.sleep(PAUSE);
+		}
+		return deleted;
+	}
+
+	private long getLastUsed(File virtualRoot) {
+		File lastUsed = new File(virtualRoot, ".lastused");
+		if (lastUsed.isFile()) {
+			try {
+				Date date = this.dateAdapter.deserializeToDate(FileUtils.readFileToString(lastUsed, Charsets.UTF_8).trim());
+				if (date != null) { return date.getTime(); }
+			} catch (IOException localIOException) {
+			} catch (RuntimeException localRuntimeException) {}
+		}
+		return virtualRoot.lastModified();
+	}
+
+	private static enum DirectoryFilter implements FileFilter {
+		INSTANCE;
+
+		public boolean accept(File file) {
+			return file.isDirectory();
+		}
+	}
+}
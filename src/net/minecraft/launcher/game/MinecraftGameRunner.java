@@ -1,48 +1,40 @@
 package net.minecraft.launcher.game;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.InetSocketAddress;
 import java.net.PasswordAuthentication;
 import java.net.Proxy;
 import java.util.Collection;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
 import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 import net.minecraft.launcher.CompatibilityRule.FeatureMatcher;
 import net.minecraft.launcher.CurrentLaunchFeatureMatcher;
 import net.minecraft.launcher.LauncherConstants;
 import net.minecraft.launcher.profile.LauncherVisibilityRule;
 import net.minecraft.launcher.profile.Profile;
-import net.minecraft.launcher.profile.ProfileManager;
 import net.minecraft.launcher.updater.ArgumentType;
 import net.minecraft.launcher.updater.CompleteMinecraftVersion;
-import net.minecraft.launcher.updater.Library;
+import net.minecraft.launcher.updater.LaunchPlan;
+import net.minecraft.launcher.updater.VersionPrefetcher;
 
-import org.apache.commons.io.Charsets;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.FileFilterUtils;
-import org.apache.commons.io.filefilter.IOFileFilter;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.StrSubstitutor;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
-import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.mojang.authlib.UserAuthentication;
 import com.mojang.authlib.UserType;
@@ -59,19 +51,23 @@ import com.mojang.launcher.game.process.direct.DirectGameProcessFactory;
 import com.mojang.launcher.game.runner.AbstractGameRunner;
 import com.mojang.launcher.updater.DateTypeAdapter;
 import com.mojang.launcher.updater.VersionSyncInfo;
-import com.mojang.launcher.updater.download.Downloadable;
-import com.mojang.launcher.updater.download.assets.AssetIndex;
+import com.mojang.launcher.updater.download.assets.AssetIndexStore;
+import com.mojang.launcher.updater.download.assets.AssetPackStore;
 import com.mojang.launcher.versions.ExtractRules;
 import com.mojang.util.UUIDTypeAdapter;
 
 public class MinecraftGameRunner extends AbstractGameRunner implements GameProcessRunnable {
 	private static final String CRASH_IDENTIFIER_MAGIC = "#@!@#";
-	private final Gson gson = new Gson();
 	private final DateTypeAdapter dateAdapter = new DateTypeAdapter();
 	private final net.minecraft.launcher.Launcher minecraftLauncher;
 	private final String[] additionalLaunchArgs;
 	private final GameProcessFactory processFactory = new DirectGameProcessFactory();
 	private File nativeDir;
+	private AssetIndexStore assetIndexStore;
+	private boolean nativeDirShared;
+	private LaunchPlan launchPlan;
+	private String classPath;
+	private GameOutputCapture outputCapture;
 	private LauncherVisibilityRule visibilityRule = LauncherVisibilityRule.CLOSE_LAUNCHER;
 	private UserAuthentication auth;
 	private Profile selectedProfile;
@@ -79,23 +75,27 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 	public MinecraftGameRunner(net.minecraft.launcher.Launcher minecraftLauncher, String[] additionalLaunchArgs) {
 		this.minecraftLauncher = minecraftLauncher;
 		this.additionalLaunchArgs = additionalLaunchArgs;
+		VersionPrefetcher.install(minecraftLauncher);
 	}
 
 	protected void setStatus(GameInstanceStatus status) {
 		synchronized (this.lock) {
-			if ((this.nativeDir != null) && (status == GameInstanceStatus.IDLE)) {
+			if ((this.nativeDir != null) && (this.nativeDirShared) && (status == GameInstanceStatus.IDLE)) {
+				this.nativeDir = null;
+			} else if ((this.nativeDir != null) && (status == GameInstanceStatus.IDLE)) {
+				// Deleting can stall on slow disks or while the process lets go of its handles, so it's left to the janitor
 				LOGGER.info("Deleting " + this.nativeDir);
-				if ((!this.nativeDir.isDirectory()) || (FileUtils.deleteQuietly(this.nativeDir))) {
-					this.nativeDir = null;
-				} else {
-					LOGGER.warn("Couldn't delete " + this.nativeDir + " - scheduling for deletion upon exit");
-					try {
-						FileUtils.forceDeleteOnExit(this.nativeDir);
-					} catch (Throwable localThrowable) {}
-				}
+				LauncherJanitor.getInstance().delete(this.nativeDir);
+				this.nativeDir = null;
 			}
 			super.setStatus(status);
 		}
+		if (status == GameInstanceStatus.IDLE) {
+			VersionPrefetcher.launchFinished();
+			LauncherJanitor.getInstance().scheduleSweep(getLauncher().getWorkingDirectory());
+		} else {
+			LauncherJanitor.getInstance().cancelSweep();
+		}
 	}
 
 	protected com.mojang.launcher.Launcher getLauncher() {
@@ -103,6 +103,7 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 	}
 
 	protected void downloadRequiredFiles(VersionSyncInfo syncInfo) {
+		VersionPrefetcher.launchStarted();
 		migrateOldAssets();
 		super.downloadRequiredFiles(syncInfo);
 	}
@@ -115,23 +116,57 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 			LOGGER.error("Aborting launch; version is null?");
 			return;
 		}
-		this.nativeDir = new File(getLauncher().getWorkingDirectory(), "versions/" + getVersion().getId() + "/" + getVersion().getId() + "-natives-" + System.nanoTime());
-		if (!this.nativeDir.isDirectory()) {
-			this.nativeDir.mkdirs();
-		}
-		LOGGER.info("Unpacking natives to " + this.nativeDir);
-		try {
-			unpackNatives(this.nativeDir);
-		} catch (IOException e) {
-			LOGGER.error("Couldn't unpack natives!", e);
-			return;
-		}
+		FeatureMatcher featureMatcher = createFeatureMatcher();
+		this.launchPlan = getVersion().getLaunchPlan(OperatingSystem.getCurrentPlatform(), featureMatcher);
+		this.assetIndexStore = null;
+		this.nativeDir = null;
+		this.nativeDirShared = false;
+		this.classPath = null;
+		final String javaPath = (String) Objects.firstNonNull(this.selectedProfile.getJavaPath(), OperatingSystem.getCurrentPlatform().getJavaDir());
+		// Everything up to spawning the process is independent I/O, so it runs side by side and is joined right before the launch
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		JavaRuntimeInfo javaRuntime;
 		File assetsDir;
 		try {
-			assetsDir = reconstructAssets();
-		} catch (IOException e) {
-			LOGGER.error("Couldn't unpack natives!", e);
-			return;
+			CompletableFuture<File> natives = stage("natives", executor, new Callable<File>() {
+				public File call() throws IOException {
+					return prepareNatives();
+				}
+			});
+			CompletableFuture<File> assets = stage("assets", executor, new Callable<File>() {
+				public File call() throws IOException {
+					return reconstructAssets();
+				}
+			});
+			CompletableFuture<String> classPath = stage("classpath", executor, new Callable<String>() {
+				public String call() {
+					return constructClassPath();
+				}
+			});
+			CompletableFuture<JavaRuntimeInfo> runtime = stage("runtime", executor, new Callable<JavaRuntimeInfo>() {
+				public JavaRuntimeInfo call() {
+					return JavaRuntimeInfo.forExecutable(javaPath);
+				}
+			});
+			try {
+				CompletableFuture.allOf(natives, assets, classPath, runtime).join();
+			} catch (CompletionException localCompletionException) {}
+			try {
+				await(natives);
+			} catch (IOException e) {
+				LOGGER.error("Couldn't unpack natives!", e);
+				return;
+			}
+			try {
+				assetsDir = (File) await(assets);
+			} catch (IOException e) {
+				LOGGER.error("Couldn't reconstruct assets!", e);
+				return;
+			}
+			this.classPath = (String) await(classPath);
+			javaRuntime = (JavaRuntimeInfo) await(runtime);
+		} finally {
+			executor.shutdown();
 		}
 		File gameDirectory = this.selectedProfile.getGameDir() == null ? getLauncher().getWorkingDirectory() : this.selectedProfile.getGameDir();
 		LOGGER.info("Launching in " + gameDirectory);
@@ -147,33 +182,35 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 		if (!serverResourcePacksDir.exists()) {
 			serverResourcePacksDir.mkdirs();
 		}
-		GameProcessBuilder processBuilder = new GameProcessBuilder((String) Objects.firstNonNull(this.selectedProfile.getJavaPath(), OperatingSystem.getCurrentPlatform().getJavaDir()));
+		GameProcessBuilder processBuilder = new GameProcessBuilder(javaPath);
 		processBuilder.withSysOutFilter(new Predicate<String>() {
 			public boolean apply(String input) {
 				return input.contains(CRASH_IDENTIFIER_MAGIC);
 			}
 		});
 		processBuilder.directory(gameDirectory);
-		processBuilder.withLogProcessor(this.minecraftLauncher.getUserInterface().showGameOutputTab(this));
+		this.outputCapture = new GameOutputCapture(this.minecraftLauncher.getUserInterface().showGameOutputTab(this), CRASH_IDENTIFIER_MAGIC);
+		processBuilder.withLogProcessor(this.outputCapture);
 
 		String profileArgs = this.selectedProfile.getJavaArgs();
 		if (profileArgs != null) {
 			processBuilder.withArguments(profileArgs.split(" "));
 		} else {
-			boolean is32Bit = "32".equals(System.getProperty("sun.arch.data.model"));
-			String defaultArgument = is32Bit ? "-Xmx512M -XX:+UseConcMarkSweepGC -XX:+CMSIncrementalMode -XX:-UseAdaptiveSizePolicy -Xmn128M"
-					: "-Xmx1G -XX:+UseConcMarkSweepGC -XX:+CMSIncrementalMode -XX:-UseAdaptiveSizePolicy -Xmn128M";
-			processBuilder.withArguments(defaultArgument.split(" "));
+			List<String> defaultArguments = new JvmErgonomics(javaRuntime, getVersion()).getArguments();
+			processBuilder.withArguments((String[]) defaultArguments.toArray(new String[defaultArguments.size()]));
 		}
-		FeatureMatcher featureMatcher = createFeatureMatcher();
 		StrSubstitutor argumentsSubstitutor = createArgumentsSubstitutor(getVersion(), this.selectedProfile, gameDirectory, assetsDir, this.auth);
+		if (ClassDataSharing.ENABLED) {
+			List<String> sharingArguments = new ClassDataSharing(getLauncher().getWorkingDirectory()).getArguments(javaRuntime, this.classPath);
+			processBuilder.withArguments((String[]) sharingArguments.toArray(new String[sharingArguments.size()]));
+		}
 
-		getVersion().addArguments(ArgumentType.JVM, featureMatcher, processBuilder, argumentsSubstitutor);
+		this.launchPlan.addArguments(ArgumentType.JVM, featureMatcher, processBuilder, argumentsSubstitutor);
 		processBuilder.withArguments(new String[] { "info.mineshafter.GameStarter", getVersion().getMainClass() });
 
 		LOGGER.info("Half command: " + StringUtils.join(processBuilder.getFullCommands(), " "));
 
-		getVersion().addArguments(ArgumentType.GAME, featureMatcher, processBuilder, argumentsSubstitutor);
+		this.launchPlan.addArguments(ArgumentType.GAME, featureMatcher, processBuilder, argumentsSubstitutor);
 
 		Proxy proxy = getLauncher().getProxy();
 		PasswordAuthentication proxyAuth = getLauncher().getProxyAuth();
@@ -198,6 +235,7 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 			}
 		} catch (IOException e) {
 			LOGGER.error("Couldn't launch game", e);
+			this.outputCapture.close();
 			setStatus(GameInstanceStatus.IDLE);
 			return;
 		}
@@ -208,10 +246,64 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 		return (CompleteMinecraftVersion) this.version;
 	}
 
-	private AssetIndex getAssetIndex() throws IOException {
-		String assetVersion = getVersion().getAssetIndex().getId();
-		File indexFile = new File(new File(getAssetsDir(), "indexes"), assetVersion + ".json");
-		return (AssetIndex) this.gson.fromJson(FileUtils.readFileToString(indexFile, Charsets.UTF_8), AssetIndex.class);
+	private File prepareNatives() throws IOException {
+		if (NativesCache.ENABLED) {
+			try {
+				this.nativeDir = new NativesCache(getLauncher().getWorkingDirectory()).obtain(getNativeArtifacts(), this.launchPlan.getDeclaredDownloads(getLauncher().getWorkingDirectory()), new NativesCache.Extractor() {
+					public void extract(File targetDir) throws IOException {
+						LOGGER.info("Unpacking natives to " + targetDir);
+						unpackNatives(targetDir);
+					}
+				});
+				this.nativeDirShared = true;
+				LOGGER.info("Using cached natives in " + this.nativeDir);
+				return this.nativeDir;
+			} catch (IOException e) {
+				LOGGER.warn("Couldn't use the natives cache, unpacking for this launch only", e);
+			}
+		}
+		this.nativeDir = new File(getLauncher().getWorkingDirectory(), "versions/" + getVersion().getId() + "/" + getVersion().getId() + "-natives-" + System.nanoTime());
+		if (!this.nativeDir.isDirectory()) {
+			this.nativeDir.mkdirs();
+		}
+		LOGGER.info("Unpacking natives to " + this.nativeDir);
+		unpackNatives(this.nativeDir);
+		return this.nativeDir;
+	}
+
+	private static <T> CompletableFuture<T> stage(final String name, Executor executor, final Callable<T> task) {
+		return CompletableFuture.supplyAsync(new Supplier<T>() {
+			public T get() {
+				long start = System.nanoTime();
+				try {
+					return task.call();
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				} finally {
+					LOGGER.info("Launch stage {} finished in {} ms", new Object[] { name, Long.valueOf((System.nanoTime() - start) / 1000000L) });
+				}
+			}
+		}, executor);
+	}
+
+	private static <T> T await(CompletableFuture<T> stage) throws IOException {
+		try {
+			return stage.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if ((cause instanceof IOException)) { throw (IOException) cause; }
+			if ((cause instanceof RuntimeException)) { throw (RuntimeException) cause; }
+			if ((cause instanceof Error)) { throw (Error) cause; }
+			throw new IOException(cause);
+		}
+	}
+
+	private synchronized AssetIndexStore getAssetIndexStore() throws IOException {
+		if (this.assetIndexStore == null) {
+			String assetVersion = getVersion().getAssetIndex().getId();
+			this.assetIndexStore = AssetIndexStore.load(new File(new File(getAssetsDir(), "indexes"), assetVersion + ".json"));
+		}
+		return this.assetIndexStore;
 	}
 
 	private File getAssetsDir() {
@@ -229,16 +321,23 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 			LOGGER.warn("No assets index file " + virtualRoot + "; can't reconstruct assets");
 			return virtualRoot;
 		}
-		AssetIndex index = (AssetIndex) this.gson.fromJson(FileUtils.readFileToString(indexFile, Charsets.UTF_8), AssetIndex.class);
+		if (VirtualAssetsBuilder.isUpToDate(indexFile, virtualRoot)) {
+			LOGGER.info("Virtual assets folder at " + virtualRoot + " is up to date");
+			FileUtils.writeStringToFile(new File(virtualRoot, ".lastused"), this.dateAdapter.serializeToString(new Date()));
+			return virtualRoot;
+		}
+		AssetIndexStore index = getAssetIndexStore();
+		AssetPackStore pack = AssetPackStore.forDirectory(objectDir);
+		if ((pack != null) && (!index.isVirtual())) {
+			// The game opens these objects itself, so any that only live in the pack need a real file again
+			int materialised = pack.materialiseMissing(index);
+			if (materialised > 0) {
+				LOGGER.info("Unpacked {} assets from the pack", new Object[] { Integer.valueOf(materialised) });
+			}
+		}
 		if (index.isVirtual()) {
 			LOGGER.info("Reconstructing virtual assets folder at " + virtualRoot);
-			for (Map.Entry<String, AssetIndex.AssetObject> entry : index.getFileMap().entrySet()) {
-				File target = new File(virtualRoot, (String) entry.getKey());
-				File original = new File(new File(objectDir, ((AssetIndex.AssetObject) entry.getValue()).getHash().substring(0, 2)), ((AssetIndex.AssetObject) entry.getValue()).getHash());
-				if (!target.isFile()) {
-					FileUtils.copyFile(original, target, false);
-				}
-			}
+			new VirtualAssetsBuilder(objectDir).build(indexFile, index, virtualRoot);
 			FileUtils.writeStringToFile(new File(virtualRoot, ".lastused"), this.dateAdapter.serializeToString(new Date()));
 		}
 		return virtualRoot;
@@ -286,108 +385,43 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 			map.put("resolution_height", "");
 		}
 		map.put("language", "en-us");
-		try {
-			AssetIndex assetIndex = getAssetIndex();
-			for (Map.Entry<String, AssetIndex.AssetObject> entry : assetIndex.getFileMap().entrySet()) {
-				String hash = ((AssetIndex.AssetObject) entry.getValue()).getHash();
-				String path = new File(new File(getAssetsDir(), "objects"), hash.substring(0, 2) + "/" + hash).getAbsolutePath();
-				map.put("asset=" + (String) entry.getKey(), path);
-			}
-		} catch (IOException localIOException) {}
 		map.put("launcher_name", "java-minecraft-launcher");
 		map.put("launcher_version", LauncherConstants.getVersionName());
 		map.put("natives_directory", this.nativeDir.getAbsolutePath());
-		map.put("classpath", constructClassPath(getVersion()));
+		map.put("classpath", this.classPath == null ? constructClassPath() : this.classPath);
 		map.put("classpath_separator", System.getProperty("path.separator"));
 		map.put("primary_jar", new File(getLauncher().getWorkingDirectory(), "versions/" + getVersion().getJar() + "/" + getVersion().getJar() + ".jar").getAbsolutePath());
 
-		return new StrSubstitutor(map);
+		return new StrSubstitutor(new AssetPathLookup(map, new File(getAssetsDir(), "objects")) {
+			protected AssetIndexStore loadIndex() throws IOException {
+				return getAssetIndexStore();
+			}
+		});
 	}
 
 	private void migrateOldAssets() {
-		File sourceDir = getAssetsDir();
-		File objectsDir = new File(sourceDir, "objects");
-		if (!sourceDir.isDirectory()) { return; }
-		IOFileFilter migratableFilter = FileFilterUtils.notFileFilter(FileFilterUtils.or(new IOFileFilter[] { FileFilterUtils.nameFileFilter("indexes"), FileFilterUtils.nameFileFilter("objects"),
-				FileFilterUtils.nameFileFilter("virtual"), FileFilterUtils.nameFileFilter("skins") }));
-		for (File file : new TreeSet<File>(FileUtils.listFiles(sourceDir, TrueFileFilter.TRUE, migratableFilter))) {
-			String hash = Downloadable.getDigest(file, "SHA-1", 40);
-			File destinationFile = new File(objectsDir, hash.substring(0, 2) + "/" + hash);
-			if (!destinationFile.exists()) {
-				LOGGER.info("Migrated old asset {} into {}", new Object[] { file, destinationFile });
-				try {
-					FileUtils.copyFile(file, destinationFile);
-				} catch (IOException e) {
-					LOGGER.error("Couldn't migrate old asset", e);
-				}
-			}
-			FileUtils.deleteQuietly(file);
-		}
-		File[] assets = sourceDir.listFiles();
-		if (assets != null) {
-			for (File file : assets) {
-				if ((!file.getName().equals("indexes")) && (!file.getName().equals("objects")) && (!file.getName().equals("virtual")) && (!file.getName().equals("skins"))) {
-					LOGGER.info("Cleaning up old assets directory {} after migration", new Object[] { file });
-					FileUtils.deleteQuietly(file);
-				}
-			}
+		try {
+			new AssetMigration(getAssetsDir()).migrate();
+		} catch (IOException e) {
+			LOGGER.error("Couldn't migrate old assets", e);
 		}
 	}
 
+	private Map<File, ExtractRules> getNativeArtifacts() {
+		return this.launchPlan.getNativeArtifacts(getLauncher().getWorkingDirectory());
+	}
+
 	private void unpackNatives(File targetDir) throws IOException {
-		OperatingSystem os = OperatingSystem.getCurrentPlatform();
-		Collection<Library> libraries = getVersion().getRelevantLibraries(createFeatureMatcher());
-		for (Library library : libraries) {
-			Map<OperatingSystem, String> nativesPerOs = library.getNatives();
-			if ((nativesPerOs != null) && (nativesPerOs.get(os) != null)) {
-				File file = new File(getLauncher().getWorkingDirectory(), "libraries/" + library.getArtifactPath((String) nativesPerOs.get(os)));
-				ZipFile zip = new ZipFile(file);
-				ExtractRules extractRules = library.getExtractRules();
-				try {
-					Enumeration<? extends ZipEntry> entries = zip.entries();
-					while (entries.hasMoreElements()) {
-						ZipEntry entry = (ZipEntry) entries.nextElement();
-						if ((extractRules == null) || (extractRules.shouldExtract(entry.getName()))) {
-							File targetFile = new File(targetDir, entry.getName());
-							if (targetFile.getParentFile() != null) {
-								targetFile.getParentFile().mkdirs();
-							}
-							if (!entry.isDirectory()) {
-								BufferedInputStream inputStream = new BufferedInputStream(zip.getInputStream(entry));
-
-								byte[] buffer = new byte['?'];
-								FileOutputStream outputStream = new FileOutputStream(targetFile);
-								BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
-								try {
-									int length;
-									while ((length = inputStream.read(buffer, 0, buffer.length)) != -1) {
-										bufferedOutputStream.write(buffer, 0, length);
-									}
-								} finally {
-									Downloadable.closeSilently(bufferedOutputStream);
-									Downloadable.closeSilently(outputStream);
-									Downloadable.closeSilently(inputStream);
-								}
-							}
-						}
-					}
-				} finally {
-					zip.close();
-				}
-			}
-		}
+		new NativesExtractor().extract(getNativeArtifacts(), targetDir);
 	}
 
 	private FeatureMatcher createFeatureMatcher() {
-		ProfileManager profileManager = this.minecraftLauncher.getProfileManager();
-		String uuid = profileManager.getSelectedUser();
-
-		return new CurrentLaunchFeatureMatcher(this.selectedProfile, getVersion(), profileManager.getAuthDatabase().getByUUID(uuid));
+		return new CurrentLaunchFeatureMatcher(this.selectedProfile, getVersion(), this.auth);
 	}
 
-	private String constructClassPath(CompleteMinecraftVersion version) {
+	private String constructClassPath() {
 		StringBuilder result = new StringBuilder();
-		Collection<File> classPath = version.getClassPath(OperatingSystem.getCurrentPlatform(), getLauncher().getWorkingDirectory(), createFeatureMatcher());
+		Collection<File> classPath = this.launchPlan.getClassPath(getLauncher().getWorkingDirectory());
 
 		classPath.add(new File(getLauncher().getWorkingDirectory(), "ms-starter.jar"));
 
@@ -404,11 +438,16 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 	}
 
 	public void onGameProcessEnded(GameProcess process) {
+		if (this.outputCapture != null) {
+			this.outputCapture.close();
+		}
 		int exitCode = process.getExitCode();
 		if (exitCode == 0) {
 			LOGGER.info("Game ended with no troubles detected (exit code " + exitCode + ")");
 			if (this.visibilityRule == LauncherVisibilityRule.CLOSE_LAUNCHER) {
 				LOGGER.info("Following visibility rule and exiting launcher as the game has ended");
+				// Nothing scheduled for later survives the exit, so this is the last chance to tidy up
+				LauncherJanitor.getInstance().sweepBeforeExit(getLauncher().getWorkingDirectory());
 				getLauncher().shutdownLauncher();
 			} else if (this.visibilityRule == LauncherVisibilityRule.HIDE_LAUNCHER) {
 				LOGGER.info("Following visibility rule and showing launcher as the game has ended");
@@ -419,40 +458,16 @@ public class MinecraftGameRunner extends AbstractGameRunner implements GameProce
 			LOGGER.info("Ignoring visibility rule and showing launcher due to a game crash");
 			this.minecraftLauncher.getUserInterface().setVisible(true);
 
-			String errorText = null;
-			Collection<String> sysOutLines = process.getSysOutLines();
-			String[] sysOut = (String[]) sysOutLines.toArray(new String[sysOutLines.size()]);
-			for (int i = sysOut.length - 1; i >= 0; i--) {
-				String line = sysOut[i];
-				int pos = line.lastIndexOf("#@!@#");
-				if ((pos >= 0) && (pos < line.length() - "#@!@#".length() - 1)) {
-					errorText = line.substring(pos + "#@!@#".length()).trim();
-					break;
-				}
-			}
+			String errorText = this.outputCapture == null ? null : this.outputCapture.getCrashText();
 			if (errorText != null) {
 				File file = new File(errorText);
 				if (file.isFile()) {
 					LOGGER.info("Crash report detected, opening: " + errorText);
-					InputStream inputStream = null;
 					try {
-						inputStream = new FileInputStream(file);
-						BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-						StringBuilder result = new StringBuilder();
-						String line;
-						while ((line = reader.readLine()) != null) {
-							if (result.length() > 0) {
-								result.append("\n");
-							}
-							result.append(line);
-						}
-						reader.close();
-
-						this.minecraftLauncher.getUserInterface().showCrashReport(getVersion(), file, result.toString());
+						CrashReportLoader crashReport = new CrashReportLoader(file);
+						this.minecraftLauncher.getUserInterface().showCrashReport(getVersion(), file, crashReport.getPreview());
 					} catch (IOException e) {
 						LOGGER.error("Couldn't open crash report", e);
-					} finally {
-						Downloadable.closeSilently(inputStream);
 					}
 				} else {
 					LOGGER.error("Crash report detected, but unknown format: " + errorText);
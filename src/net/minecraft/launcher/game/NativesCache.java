@@ -0,0 +1,189 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import net.minecraft.launcher.updater.DownloadInfo;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+
+import com.mojang.launcher.updater.download.assets.HashingService;
+import com.mojang.launcher.versions.ExtractRules;
+
+public class NativesCache {
+	public static final boolean ENABLED = !Boolean.getBoolean("mineshafter.disableNativesCache");
+	private static final String MANIFEST = ".manifest";
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{40}");
+	private final File baseDir;
+
+	public NativesCache(File workingDirectory) {
+		this.baseDir = new File(workingDirectory, "natives");
+	}
+
+	public File getBaseDir() {
+		return this.baseDir;
+	}
+
+	public File obtain(Map<File, ExtractRules> artifacts, Map<File, DownloadInfo> downloads, Extractor extractor) throws IOException {
+		String key = computeKey(artifacts, downloads);
+		File target = new File(this.baseDir, key);
+		if (isValid(target)) { return markUsed(target); }
+		this.baseDir.mkdirs();
+		RandomAccessFile lockFile = new RandomAccessFile(new File(this.baseDir, key + LOCK_SUFFIX), "rw");
+		try {
+			FileLock lock = lockFile.getChannel().lock();
+			try {
+				// Another launcher may have finished extracting while we waited for the lock
+				if (isValid(target)) { return markUsed(target); }
+				File temp = new File(this.baseDir, key + ".tmp-" + System.nanoTime());
+				temp.mkdirs();
+				try {
+					extractor.extract(temp);
+					writeManifest(temp);
+					FileUtils.deleteQuietly(target);
+					if (!temp.renameTo(target)) { throw new IOException("Couldn't move " + temp + " to " + target); }
+				} finally {
+					FileUtils.deleteQuietly(temp);
+				}
+			} finally {
+				lock.release();
+			}
+		} finally {
+			lockFile.close();
+		}
+		return target;
+	}
+
+	public Set<String> getKeys() {
+		Set<String> result = new TreeSet<String>();
+		String[] names = this.baseDir.list();
+		if (names == null) { return result; }
+		for (String name : names) {
+			String key = name.endsWith(LOCK_SUFFIX) ? name.substring(0, name.length() - LOCK_SUFFIX.length()) : name;
+			if (KEY_PATTERN.matcher(key).matches()) {
+				result.add(key);
+			}
+		}
+		return result;
+	}
+
+	public long getLastUsed(String key) {
+		File dir = new File(this.baseDir, key);
+		// A lock without its directory is left over from an extraction that never finished
+		return dir.isDirectory() ? dir.lastModified() : new File(this.baseDir, key + LOCK_SUFFIX).lastModified();
+	}
+
+	public boolean evict(String key) throws IOException {
+		File lockTarget = new File(this.baseDir, key + LOCK_SUFFIX);
+		RandomAccessFile lockFile = new RandomAccessFile(lockTarget, "rw");
+		try {
+			FileLock lock;
+			try {
+				lock = lockFile.getChannel().tryLock();
+			} catch (OverlappingFileLockException e) {
+				lock = null;
+			}
+			// Someone is extracting this key right now, it is clearly still in use
+			if (lock == null) { return false; }
+			try {
+				File dir = new File(this.baseDir, key);
+				if ((!FileUtils.deleteQuietly(dir)) && (dir.exists())) { return false; }
+			} finally {
+				lock.release();
+			}
+		} finally {
+			lockFile.close();
+		}
+		return (lockTarget.delete()) || (!lockTarget.exists());
+	}
+
+	private String computeKey(Map<File, ExtractRules> artifacts, Map<File, DownloadInfo> downloads) throws IOException {
+		// The declared sha1 already names the jar's contents, only libraries from before the downloads block get hashed
+		Map<File, String> hashes = new HashMap<File, String>();
+		List<File> undeclared = new ArrayList<File>();
+		for (File file : artifacts.keySet()) {
+			DownloadInfo download = (DownloadInfo) downloads.get(file);
+			if ((download != null) && (download.getSha1() != null)) {
+				hashes.put(file, download.getSha1().toLowerCase());
+			} else {
+				undeclared.add(file);
+			}
+		}
+		if (!undeclared.isEmpty()) {
+			hashes.putAll(HashingService.getInstance().hashAll(undeclared));
+		}
+		List<String> parts = new ArrayList<String>();
+		for (Map.Entry<File, ExtractRules> entry : artifacts.entrySet()) {
+			String hash = (String) hashes.get(entry.getKey());
+			if (hash == null) { throw new IOException("Couldn't hash native artifact " + entry.getKey()); }
+			ExtractRules rules = (ExtractRules) entry.getValue();
+			parts.add(hash + ":" + (rules == null ? "" : String.valueOf(rules.getExcludes())));
+		}
+		Collections.sort(parts);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (String part : parts) {
+				digest.update(part.getBytes(Charsets.UTF_8));
+				digest.update((byte) '\n');
+			}
+			return HashingService.toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static File markUsed(File dir) {
+		// Nothing writes to the directory after extraction, so its timestamp is free to record the last launch for the janitor
+		dir.setLastModified(System.currentTimeMillis());
+		return dir;
+	}
+
+	private static boolean isValid(File dir) {
+		File manifest = new File(dir, MANIFEST);
+		if (!manifest.isFile()) { return false; }
+		try {
+			for (String line : FileUtils.readLines(manifest, Charsets.UTF_8)) {
+				int space = line.indexOf(' ');
+				if (space < 0) { return false; }
+				File file = new File(dir, line.substring(space + 1));
+				if ((!file.isFile()) || (file.length() != Long.parseLong(line.substring(0, space)))) { return false; }
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static void writeManifest(File dir) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		String base = dir.getAbsolutePath() + File.separator;
+		Collection<File> files = FileUtils.listFiles(dir, TrueFileFilter.TRUE, TrueFileFilter.TRUE);
+		for (File file : files) {
+			lines.add(file.length() + " " + file.getAbsolutePath().substring(base.length()));
+		}
+		FileUtils.writeLines(new File(dir, MANIFEST), "UTF-8", lines);
+	}
+
+	public static interface Extractor {
+		void extract(File targetDir) throws IOException;
+	}
+}
@@ -0,0 +1,115 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.updater.download.Downloadable;
+import com.mojang.launcher.versions.ExtractRules;
+
+public class NativesExtractor {
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	public void extract(Map<File, ExtractRules> artifacts, File targetDir) throws IOException {
+		final Path base = targetDir.toPath().toAbsolutePath().normalize();
+		final List<ZipFile> zips = new ArrayList<ZipFile>();
+		ExecutorService executor = null;
+		try {
+			// Libraries used to be unpacked one after another, so when two of them carry the same file the last one wins
+			final Map<String, Integer> owners = new HashMap<String, Integer>();
+			final List<ExtractRules> rules = new ArrayList<ExtractRules>();
+			for (Map.Entry<File, ExtractRules> artifact : artifacts.entrySet()) {
+				ZipFile zip = new ZipFile((File) artifact.getKey());
+				zips.add(zip);
+				rules.add(artifact.getValue());
+				Enumeration<? extends ZipEntry> entries = zip.entries();
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = (ZipEntry) entries.nextElement();
+					if ((!entry.isDirectory()) && (shouldExtract((ExtractRules) artifact.getValue(), entry))) {
+						owners.put(entry.getName(), Integer.valueOf(zips.size() - 1));
+					}
+				}
+			}
+			if (zips.isEmpty()) { return; }
+			executor = Executors.newFixedThreadPool(Math.min(zips.size(), Runtime.getRuntime().availableProcessors()));
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < zips.size(); i++) {
+				final int index = i;
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						extract((ZipFile) zips.get(index), (ExtractRules) rules.get(index), index, owners, base);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					if ((e.getCause() instanceof IOException)) { throw (IOException) e.getCause(); }
+					throw new IOException(e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while unpacking natives", e);
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			for (ZipFile zip : zips) {
+				Downloadable.closeSilently(zip);
+			}
+		}
+	}
+
+	private void extract(ZipFile zip, ExtractRules extractRules, int index, Map<String, Integer> owners, Path base) throws IOException {
+		long start = System.nanoTime();
+		int files = 0;
+		long bytes = 0L;
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = (ZipEntry) entries.nextElement();
+			if (!shouldExtract(extractRules, entry)) {
+				continue;
+			}
+			Path target = base.resolve(entry.getName()).normalize();
+			if (!target.startsWith(base)) { throw new IOException("Refusing to unpack " + entry.getName() + " from " + zip.getName() + " outside of " + base); }
+			if (entry.isDirectory()) {
+				Files.createDirectories(target);
+			} else if (((Integer) owners.get(entry.getName())).intValue() == index) {
+				Files.createDirectories(target.getParent());
+				InputStream inputStream = zip.getInputStream(entry);
+				try {
+					bytes += Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+				} finally {
+					Downloadable.closeSilently(inputStream);
+				}
+				files++;
+			}
+		}
+		LOGGER.info("Unpacked {} files ({} bytes) from {} in {} ms", new Object[] { Integer.valueOf(files), Long.valueOf(bytes), new File(zip.getName()).getName(), Long.valueOf((System.nanoTime() - start) / 1000000L) });
+	}
+
+	private static boolean shouldExtract(ExtractRules extractRules, ZipEntry entry) {
+		return (extractRules == null) || (extractRules.shouldExtract(entry.getName()));
+	}
+}
@@ -0,0 +1,161 @@
+package net.minecraft.launcher.game;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.updater.download.assets.AssetIndexStore;
+import com.mojang.launcher.updater.download.assets.AssetPackStore;
+
+public class VirtualAssetsBuilder {
+	private static final Logger LOGGER = LogManager.getLogger();
+	private static final String MANIFEST = ".reconstructed";
+	private static final String SYMLINKED = ".symlinked";
+	private static final int HARD_LINK = 0;
+	private static final int SYMBOLIC_LINK = 1;
+	private static final int COPY = 2;
+	private static final int CHUNK_SIZE = 256;
+	private final File objectsDir;
+	private final AssetPackStore pack;
+	private final AtomicInteger mode = new AtomicInteger(Boolean.getBoolean("mineshafter.copyVirtualAssets") ? COPY : HARD_LINK);
+	private final AtomicInteger created = new AtomicInteger();
+	private final AtomicInteger symlinked = new AtomicInteger();
+
+	public VirtualAssetsBuilder(File objectsDir) {
+		this.objectsDir = objectsDir;
+		this.pack = AssetPackStore.forDirectory(objectsDir);
+	}
+
+	public static boolean isUpToDate(File indexFile, File virtualRoot) {
+		File manifest = new File(virtualRoot, MANIFEST);
+		try {
+			return manifest.isFile() && getManifest(indexFile).equals(FileUtils.readFileToString(manifest, Charsets.UTF_8).trim());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public static int invalidateSymlinked(File virtualDir) {
+		File[] virtualRoots = virtualDir.listFiles();
+		if (virtualRoots == null) { return 0; }
+		int invalidated = 0;
+		for (File virtualRoot : virtualRoots) {
+			// Packing deletes the loose objects these links point at, the next launch has to rebuild the root from the pack
+			if ((new File(virtualRoot, SYMLINKED).isFile()) && (FileUtils.deleteQuietly(new File(virtualRoot, MANIFEST)))) {
+				invalidated++;
+			}
+		}
+		return invalidated;
+	}
+
+	public void build(File indexFile, final AssetIndexStore index, final File virtualRoot) throws IOException {
+		long start = System.nanoTime();
+		FileUtils.deleteQuietly(new File(virtualRoot, MANIFEST));
+		FileUtils.deleteQuietly(new File(virtualRoot, SYMLINKED));
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < index.size(); i += CHUNK_SIZE) {
+				final int from = i;
+				final int to = Math.min(index.size(), i + CHUNK_SIZE);
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						for (int entry = from; entry < to; entry++) {
+							reconstruct(new File(VirtualAssetsBuilder.this.objectsDir, index.getObjectPath(entry)), new File(virtualRoot, index.getKey(entry)));
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					if ((e.getCause() instanceof IOException)) { throw (IOException) e.getCause(); }
+					throw new IOException(e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while reconstructing assets", e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (this.symlinked.get() > 0) {
+			FileUtils.touch(new File(virtualRoot, SYMLINKED));
+		}
+		FileUtils.writeStringToFile(new File(virtualRoot, MANIFEST), getManifest(indexFile), Charsets.UTF_8);
+		LOGGER.info("Reconstructed {} of {} virtual assets in {} ms", new Object[] { Integer.valueOf(this.created.get()), Integer.valueOf(index.size()), Long.valueOf((System.nanoTime() - start) / 1000000L) });
+	}
+
+	private void reconstruct(File original, File target) throws IOException {
+		if (target.isFile()) {
+			if (Files.isSymbolicLink(target.toPath())) {
+				this.symlinked.incrementAndGet();
+			}
+			return;
+		}
+		if (!original.isFile()) {
+			if ((this.pack != null) && (this.pack.materialise(original.getName(), target))) {
+				this.created.incrementAndGet();
+				return;
+			}
+			throw new FileNotFoundException("Asset object " + original + " doesn't exist");
+		}
+		target.getParentFile().mkdirs();
+		Path targetPath = target.toPath();
+		Path originalPath = original.toPath();
+		// Drops a dangling symlink left behind by an object that has since been removed
+		Files.deleteIfExists(targetPath);
+		if (this.mode.get() == HARD_LINK) {
+			try {
+				Files.createLink(targetPath, originalPath);
+				this.created.incrementAndGet();
+				return;
+			} catch (IOException e) {
+				degrade(HARD_LINK, e);
+			} catch (UnsupportedOperationException e) {
+				degrade(HARD_LINK, e);
+			}
+		}
+		if (this.mode.get() == SYMBOLIC_LINK) {
+			try {
+				Files.createSymbolicLink(targetPath, originalPath.toAbsolutePath());
+				this.created.incrementAndGet();
+				this.symlinked.incrementAndGet();
+				return;
+			} catch (IOException e) {
+				degrade(SYMBOLIC_LINK, e);
+			} catch (UnsupportedOperationException e) {
+				degrade(SYMBOLIC_LINK, e);
+			}
+		}
+		FileUtils.copyFile(original, target, false);
+		this.created.incrementAndGet();
+	}
+
+	private void degrade(int from, Exception cause) {
+		if (this.mode.compareAndSet(from, from + 1)) {
+			LOGGER.warn("Couldn't " + (from == HARD_LINK ? "hard link" : "symlink") + " virtual assets, falling back to " + (from == HARD_LINK ? "symlinks" : "copying") + ": " + cause);
+		}
+	}
+
+	private static String getManifest(File indexFile) {
+		return indexFile.length() + " " + indexFile.lastModified();
+	}
+}
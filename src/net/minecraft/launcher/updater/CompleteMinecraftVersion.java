@@ -8,22 +8,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.EnumMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import net.minecraft.launcher.CompatibilityRule;
-import net.minecraft.launcher.CurrentLaunchFeatureMatcher;
 import net.minecraft.launcher.Launcher;
-import net.minecraft.launcher.profile.ProfileManager;
+import net.minecraft.launcher.game.LauncherJanitor;
 
 import org.apache.commons.lang3.text.StrSubstitutor;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.mojang.authlib.UserAuthentication;
 import com.mojang.launcher.OperatingSystem;
 import com.mojang.launcher.game.process.GameProcessBuilder;
 import com.mojang.launcher.updater.VersionSyncInfo;
@@ -45,12 +43,23 @@ public class CompleteMinecraftVersion implements CompleteVersion {
 	private String assets;
 	private List<CompatibilityRule> compatibilityRules;
 	private String jar;
-	private CompleteMinecraftVersion savableVersion;
+	private transient CompleteMinecraftVersion savableVersion;
 	private transient boolean synced = false;
+	private transient LaunchPlan launchPlan;
+	private transient Boolean staticCompatibility;
+	private transient FeatureSnapshot compatibilitySnapshot;
+	private transient boolean compatibleWithSnapshot;
 	private Map<DownloadType, DownloadInfo> downloads = Maps.newEnumMap(DownloadType.class);
 	private AssetIndexInfo assetIndex;
+	private JavaVersionInfo javaVersion;
 	private Map<ArgumentType, List<Argument>> arguments;
 
+	static {
+		// The launcher parses every installed version while it starts up, before anything else of ours gets loaded
+		VersionPrefetcher.install(Launcher.getCurrentInstance());
+		LauncherJanitor.launcherStarted(Launcher.getCurrentInstance());
+	}
+
 	public CompleteMinecraftVersion() {}
 
 	public CompleteMinecraftVersion(CompleteMinecraftVersion version) {
@@ -66,6 +75,9 @@ public class CompleteMinecraftVersion implements CompleteVersion {
 		this.assets = version.assets;
 		this.jar = version.jar;
 		this.downloads = version.downloads;
+		if (version.javaVersion != null) {
+			this.javaVersion = new JavaVersionInfo(version.javaVersion);
+		}
 		if (version.libraries != null) {
 			this.libraries = Lists.newArrayList();
 			for (Library library : version.getLibraries()) {
@@ -120,65 +132,30 @@ public class CompleteMinecraftVersion implements CompleteVersion {
 	}
 
 	public Collection<Library> getRelevantLibraries(CompatibilityRule.FeatureMatcher featureMatcher) {
-		List<Library> result = new ArrayList<Library>();
-		for (Library library : this.libraries) {
-			if (library.appliesToCurrentEnvironment(featureMatcher)) {
-				result.add(library);
-			}
-		}
-		return result;
+		return new ArrayList<Library>(getLaunchPlan(OperatingSystem.getCurrentPlatform(), featureMatcher).getLibraries());
 	}
 
 	public Collection<File> getClassPath(OperatingSystem os, File base, CompatibilityRule.FeatureMatcher featureMatcher) {
-		Collection<Library> libraries = getRelevantLibraries(featureMatcher);
-		Collection<File> result = new ArrayList<File>();
-		for (Library library : libraries) {
-			if (library.getNatives() == null) {
-				result.add(new File(base, "libraries/" + library.getArtifactPath()));
-			}
-		}
-		result.add(new File(base, "versions/" + getJar() + "/" + getJar() + ".jar"));
-
-		return result;
+		return getLaunchPlan(os, featureMatcher).getClassPath(base);
 	}
 
 	public Set<String> getRequiredFiles(OperatingSystem os) {
-		Set<String> neededFiles = new HashSet<String>();
-		for (Library library : getRelevantLibraries(createFeatureMatcher())) {
-			if (library.getNatives() != null) {
-				String natives = (String) library.getNatives().get(os);
-				if (natives != null) {
-					neededFiles.add("libraries/" + library.getArtifactPath(natives));
-				}
-			} else {
-				neededFiles.add("libraries/" + library.getArtifactPath());
-			}
-		}
-		return neededFiles;
+		return getLaunchPlan(os).getRequiredFiles();
 	}
 
 	public Set<Downloadable> getRequiredDownloadables(OperatingSystem os, Proxy proxy, File targetDirectory, boolean ignoreLocalFiles) throws MalformedURLException {
-		Set<Downloadable> neededFiles = new HashSet<Downloadable>();
-		for (Library library : getRelevantLibraries(createFeatureMatcher())) {
-			String file = null;
-			String classifier = null;
-			if (library.getNatives() != null) {
-				classifier = (String) library.getNatives().get(os);
-				if (classifier != null) {
-					file = library.getArtifactPath(classifier);
-				}
-			} else {
-				file = library.getArtifactPath();
-			}
-			if (file != null) {
-				File local = new File(targetDirectory, "libraries/" + file);
-				Downloadable download = library.createDownload(proxy, file, local, ignoreLocalFiles, classifier);
-				if (download != null) {
-					neededFiles.add(download);
-				}
-			}
+		return getLaunchPlan(os).getRequiredDownloadables(proxy, targetDirectory, ignoreLocalFiles);
+	}
+
+	public LaunchPlan getLaunchPlan(OperatingSystem os) {
+		return getLaunchPlan(os, createFeatureMatcher());
+	}
+
+	public synchronized LaunchPlan getLaunchPlan(OperatingSystem os, CompatibilityRule.FeatureMatcher featureMatcher) {
+		if ((this.launchPlan == null) || (!this.launchPlan.isValidFor(os, featureMatcher))) {
+			this.launchPlan = new LaunchPlan(this, os, featureMatcher);
 		}
-		return neededFiles;
+		return this.launchPlan;
 	}
 
 	public String toString() {
@@ -196,16 +173,37 @@ public class CompleteMinecraftVersion implements CompleteVersion {
 
 	public boolean appliesToCurrentEnvironment() {
 		if (this.compatibilityRules == null) { return true; }
+		if (this.staticCompatibility != null) { return this.staticCompatibility.booleanValue(); }
+		FeatureSnapshot snapshot = FeatureSnapshot.current();
+		synchronized (this) {
+			if (this.compatibilitySnapshot == snapshot) { return this.compatibleWithSnapshot; }
+		}
+		final CompatibilityRule.FeatureMatcher featureMatcher = snapshot.forVersion(this);
+		final boolean[] consulted = new boolean[1];
 		CompatibilityRule.Action lastAction = CompatibilityRule.Action.DISALLOW;
+		CompatibilityRule.FeatureMatcher recordingMatcher = new CompatibilityRule.FeatureMatcher() {
+			public boolean hasFeature(String name, Object value) {
+				consulted[0] = true;
+				return featureMatcher.hasFeature(name, value);
+			}
+		};
 		for (CompatibilityRule compatibilityRule : this.compatibilityRules) {
-			ProfileManager profileManager = Launcher.getCurrentInstance().getProfileManager();
-			UserAuthentication auth = profileManager.getAuthDatabase().getByUUID(profileManager.getSelectedUser());
-			CompatibilityRule.Action action = compatibilityRule.getAppliedAction(new CurrentLaunchFeatureMatcher(profileManager.getSelectedProfile(), this, auth));
+			CompatibilityRule.Action action = compatibilityRule.getAppliedAction(recordingMatcher);
 			if (action != null) {
 				lastAction = action;
 			}
 		}
-		return lastAction == CompatibilityRule.Action.ALLOW;
+		boolean result = lastAction == CompatibilityRule.Action.ALLOW;
+		synchronized (this) {
+			// Rules that never asked for a feature only depend on the platform, so the answer can't change while we're running
+			if (!consulted[0]) {
+				this.staticCompatibility = Boolean.valueOf(result);
+			} else {
+				this.compatibilitySnapshot = snapshot;
+				this.compatibleWithSnapshot = result;
+			}
+		}
+		return result;
 	}
 
 	public String getIncompatibilityReason() {
@@ -225,16 +223,37 @@ public class CompleteMinecraftVersion implements CompleteVersion {
 	}
 
 	public CompleteMinecraftVersion resolve(MinecraftVersionManager versionManager) throws IOException {
-		return resolve(versionManager, new HashSet<String>());
+		if (this.inheritsFrom == null) { return this; }
+		ResolvedVersionCache cache = ResolvedVersionCache.getInstance();
+		if (cache != null) {
+			CompleteMinecraftVersion cached = cache.load(this, versionManager);
+			if (cached != null) {
+				cached.savableVersion = this;
+				return cached;
+			}
+		}
+		Set<String> chain = new LinkedHashSet<String>();
+		CompleteMinecraftVersion result = resolve(versionManager, chain);
+		if (cache != null) {
+			cache.save(this, result, chain);
+		}
+		return result;
+	}
+
+	static boolean needsInstall(VersionSyncInfo parentSync) {
+		return (!parentSync.isInstalled()) || (!parentSync.isUpToDate()) || (parentSync.getLatestSource() != VersionSyncInfo.VersionSource.LOCAL);
 	}
 
 	protected CompleteMinecraftVersion resolve(MinecraftVersionManager versionManager, Set<String> resolvedSoFar) throws IOException {
-		if (this.inheritsFrom == null) { return this; }
+		if (this.inheritsFrom == null) {
+			resolvedSoFar.add(this.id);
+			return this;
+		}
 		if (!resolvedSoFar.add(this.id)) { throw new IllegalStateException("Circular dependency detected"); }
 		VersionSyncInfo parentSync = versionManager.getVersionSyncInfo(this.inheritsFrom);
 		CompleteMinecraftVersion parent = versionManager.getLatestCompleteVersion(parentSync).resolve(versionManager, resolvedSoFar);
 		CompleteMinecraftVersion result = new CompleteMinecraftVersion(parent);
-		if ((!parentSync.isInstalled()) || (!parentSync.isUpToDate()) || (parentSync.getLatestSource() != VersionSyncInfo.VersionSource.LOCAL)) {
+		if (needsInstall(parentSync)) {
 			versionManager.installVersion(parent);
 		}
 		result.savableVersion = this;
@@ -258,6 +277,9 @@ public class CompleteMinecraftVersion implements CompleteVersion {
 		if (this.jar != null) {
 			result.jar = this.jar;
 		}
+		if (this.javaVersion != null) {
+			result.javaVersion = this.javaVersion;
+		}
 		if (this.libraries != null) {
 			List<Library> newLibraries = Lists.newArrayList();
 			for (Library library : this.libraries) {
@@ -304,10 +326,12 @@ public class CompleteMinecraftVersion implements CompleteVersion {
 		return this.assetIndex;
 	}
 
+	public JavaVersionInfo getJavaVersion() {
+		return this.javaVersion;
+	}
+
 	public CompatibilityRule.FeatureMatcher createFeatureMatcher() {
-		ProfileManager profileManager = Launcher.getCurrentInstance().getProfileManager();
-		UserAuthentication auth = profileManager.getAuthDatabase().getByUUID(profileManager.getSelectedUser());
-		return new CurrentLaunchFeatureMatcher(profileManager.getSelectedProfile(), this, auth);
+		return FeatureSnapshot.current().forVersion(this);
 	}
 
 	public void addArguments(ArgumentType type, CompatibilityRule.FeatureMatcher featureMatcher, GameProcessBuilder builder, StrSubstitutor substitutor) {
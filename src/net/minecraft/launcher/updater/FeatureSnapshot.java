@@ -0,0 +1,68 @@
+package net.minecraft.launcher.updater;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.minecraft.launcher.CompatibilityRule;
+import net.minecraft.launcher.CurrentLaunchFeatureMatcher;
+import net.minecraft.launcher.Launcher;
+import net.minecraft.launcher.profile.Profile;
+import net.minecraft.launcher.profile.ProfileManager;
+import net.minecraft.launcher.profile.RefreshedProfilesListener;
+
+import com.mojang.authlib.UserAuthentication;
+
+public class FeatureSnapshot {
+	private static FeatureSnapshot current;
+	private static boolean listening;
+	private final Profile profile;
+	private final UserAuthentication auth;
+	private final Map<String, Boolean> features = new ConcurrentHashMap<String, Boolean>();
+
+	public FeatureSnapshot(Profile profile, UserAuthentication auth) {
+		this.profile = profile;
+		this.auth = auth;
+	}
+
+	public static synchronized FeatureSnapshot current() {
+		ProfileManager profileManager = Launcher.getCurrentInstance().getProfileManager();
+		if (!listening) {
+			listening = true;
+			profileManager.addRefreshedProfilesListener(new RefreshedProfilesListener() {
+				public void onProfilesRefreshed(ProfileManager manager) {
+					FeatureSnapshot.invalidate();
+				}
+			});
+		}
+		Profile profile = profileManager.getSelectedProfile();
+		UserAuthentication auth = profileManager.getAuthDatabase().getByUUID(profileManager.getSelectedUser());
+		if ((current == null) || (current.profile != profile) || (current.auth != auth)) {
+			current = new FeatureSnapshot(profile, auth);
+		}
+		return current;
+	}
+
+	public static synchronized void invalidate() {
+		current = null;
+	}
+
+	public CompatibilityRule.FeatureMatcher forVersion(final CompleteMinecraftVersion version) {
+		return new CompatibilityRule.FeatureMatcher() {
+			private CompatibilityRule.FeatureMatcher delegate;
+
+			public boolean hasFeature(String name, Object value) {
+				String key = name + "=" + value;
+				Boolean result = (Boolean) FeatureSnapshot.this.features.get(key);
+				if (result == null) {
+					// The launch features only depend on the profile and the account, so any version can answer for all of them
+					if (this.delegate == null) {
+						this.delegate = new CurrentLaunchFeatureMatcher(FeatureSnapshot.this.profile, version, FeatureSnapshot.this.auth);
+					}
+					result = Boolean.valueOf(this.delegate.hasFeature(name, value));
+					FeatureSnapshot.this.features.put(key, result);
+				}
+				return result.booleanValue();
+			}
+		};
+	}
+}
@@ -0,0 +1,21 @@
+package net.minecraft.launcher.updater;
+
+public class JavaVersionInfo {
+	private String component;
+	private int majorVersion;
+
+	public JavaVersionInfo() {}
+
+	public JavaVersionInfo(JavaVersionInfo other) {
+		this.component = other.component;
+		this.majorVersion = other.majorVersion;
+	}
+
+	public String getComponent() {
+		return this.component;
+	}
+
+	public int getMajorVersion() {
+		return this.majorVersion;
+	}
+}
@@ -0,0 +1,171 @@
+package net.minecraft.launcher.updater;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraft.launcher.CompatibilityRule;
+
+import org.apache.commons.lang3.text.StrSubstitutor;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.mojang.launcher.OperatingSystem;
+import com.mojang.launcher.game.process.GameProcessBuilder;
+import com.mojang.launcher.updater.download.Downloadable;
+import com.mojang.launcher.versions.ExtractRules;
+
+public class LaunchPlan {
+	private static final Gson GSON = new Gson();
+	private final CompleteMinecraftVersion version;
+	private final OperatingSystem os;
+	private final Map<List<Object>, Boolean> features = new LinkedHashMap<List<Object>, Boolean>();
+	private final List<Library> libraries;
+	private final List<Artifact> artifacts;
+
+	public LaunchPlan(CompleteMinecraftVersion version, OperatingSystem os, final CompatibilityRule.FeatureMatcher featureMatcher) {
+		this.version = version;
+		this.os = os;
+		// Every feature the library rules asked about, with the answer they got, is what this plan depends on
+		CompatibilityRule.FeatureMatcher recordingMatcher = new CompatibilityRule.FeatureMatcher() {
+			public boolean hasFeature(String name, Object value) {
+				boolean result = featureMatcher.hasFeature(name, value);
+				LaunchPlan.this.features.put(Arrays.asList(new Object[] { name, value }), Boolean.valueOf(result));
+				return result;
+			}
+		};
+		List<Library> libraries = new ArrayList<Library>();
+		List<Artifact> artifacts = new ArrayList<Artifact>();
+		if (version.getLibraries() != null) {
+			for (Library library : version.getLibraries()) {
+				if (!library.appliesToCurrentEnvironment(recordingMatcher)) {
+					continue;
+				}
+				libraries.add(library);
+				if (library.getNatives() != null) {
+					String classifier = (String) library.getNatives().get(os);
+					if (classifier != null) {
+						artifacts.add(new Artifact(library, library.getArtifactPath(classifier), classifier));
+					}
+				} else {
+					artifacts.add(new Artifact(library, library.getArtifactPath(), null));
+				}
+			}
+		}
+		this.libraries = Collections.unmodifiableList(libraries);
+		this.artifacts = Collections.unmodifiableList(artifacts);
+	}
+
+	public boolean isValidFor(OperatingSystem os, CompatibilityRule.FeatureMatcher featureMatcher) {
+		if (this.os != os) { return false; }
+		for (Map.Entry<List<Object>, Boolean> entry : this.features.entrySet()) {
+			if (featureMatcher.hasFeature((String) entry.getKey().get(0), entry.getKey().get(1)) != entry.getValue().booleanValue()) { return false; }
+		}
+		return true;
+	}
+
+	public OperatingSystem getOperatingSystem() {
+		return this.os;
+	}
+
+	public List<Library> getLibraries() {
+		return this.libraries;
+	}
+
+	public Collection<File> getClassPath(File base) {
+		Collection<File> result = new ArrayList<File>();
+		for (Artifact artifact : this.artifacts) {
+			if (artifact.classifier == null) {
+				result.add(new File(base, "libraries/" + artifact.path));
+			}
+		}
+		result.add(new File(base, "versions/" + this.version.getJar() + "/" + this.version.getJar() + ".jar"));
+		return result;
+	}
+
+	public Map<File, ExtractRules> getNativeArtifacts(File base) {
+		Map<File, ExtractRules> result = new LinkedHashMap<File, ExtractRules>();
+		for (Artifact artifact : this.artifacts) {
+			if (artifact.classifier != null) {
+				result.put(new File(base, "libraries/" + artifact.path), artifact.library.getExtractRules());
+			}
+		}
+		return result;
+	}
+
+	public Set<String> getRequiredFiles() {
+		Set<String> result = new LinkedHashSet<String>();
+		for (Artifact artifact : this.artifacts) {
+			result.add("libraries/" + artifact.path);
+		}
+		return result;
+	}
+
+	public Set<Downloadable> getRequiredDownloadables(Proxy proxy, File targetDirectory, boolean ignoreLocalFiles) throws MalformedURLException {
+		Set<Downloadable> result = new LinkedHashSet<Downloadable>();
+		for (Artifact artifact : this.artifacts) {
+			Downloadable download = artifact.library.createDownload(proxy, artifact.path, new File(targetDirectory, "libraries/" + artifact.path), ignoreLocalFiles, artifact.classifier);
+			if (download != null) {
+				result.add(download);
+			}
+		}
+		return result;
+	}
+
+	public Map<File, DownloadInfo> getDeclaredDownloads(File base) {
+		Map<File, DownloadInfo> result = new LinkedHashMap<File, DownloadInfo>();
+		for (Artifact artifact : this.artifacts) {
+			DownloadInfo info = getDeclaredDownload(artifact);
+			if (info != null) {
+				result.put(new File(base, "libraries/" + artifact.path), info);
+			}
+		}
+		return result;
+	}
+
+	public void addArguments(ArgumentType type, CompatibilityRule.FeatureMatcher featureMatcher, GameProcessBuilder builder, StrSubstitutor substitutor) {
+		// Arguments are evaluated against the caller's matcher, the plan only remembers which libraries it picked
+		this.version.addArguments(type, featureMatcher, builder, substitutor);
+	}
+
+	private static DownloadInfo getDeclaredDownload(Artifact artifact) {
+		try {
+			// Library keeps its downloads block to itself, so it is read back out of the same JSON the version was parsed from
+			JsonElement downloads = GSON.toJsonTree(artifact.library).getAsJsonObject().get("downloads");
+			if ((downloads == null) || (!downloads.isJsonObject())) { return null; }
+			JsonElement info;
+			if (artifact.classifier == null) {
+				info = downloads.getAsJsonObject().get("artifact");
+			} else {
+				JsonElement classifiers = downloads.getAsJsonObject().get("classifiers");
+				info = (classifiers == null) || (!classifiers.isJsonObject()) ? null : classifiers.getAsJsonObject().get(artifact.classifier.replace("${arch}", System.getProperty("sun.arch.data.model")));
+			}
+			if ((info == null) || (!info.isJsonObject())) { return null; }
+			DownloadInfo result = (DownloadInfo) GSON.fromJson(info, DownloadInfo.class);
+			return (result.getUrl() == null) || (result.getSha1() == null) ? null : result;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static class Artifact {
+		private final Library library;
+		private final String path;
+		private final String classifier;
+
+		private Artifact(Library library, String path, String classifier) {
+			this.library = library;
+			this.path = path;
+			this.classifier = classifier;
+		}
+	}
+}
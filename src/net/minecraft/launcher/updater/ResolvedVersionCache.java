@@ -0,0 +1,137 @@
+package net.minecraft.launcher.updater;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import net.minecraft.launcher.Launcher;
+import net.minecraft.launcher.game.MinecraftReleaseType;
+import net.minecraft.launcher.game.MinecraftReleaseTypeFactory;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.mojang.launcher.updater.DateTypeAdapter;
+import com.mojang.launcher.updater.LowerCaseEnumTypeAdapterFactory;
+import com.mojang.launcher.updater.ReleaseTypeAdapterFactory;
+import com.mojang.launcher.updater.VersionSyncInfo;
+import com.mojang.launcher.versions.ReleaseType;
+
+public class ResolvedVersionCache {
+	private static final Logger LOGGER = LogManager.getLogger();
+	public static final boolean ENABLED = !Boolean.getBoolean("mineshafter.disableResolvedVersionCache");
+	private static final int FORMAT = 1;
+	private static ResolvedVersionCache instance;
+	private final File versionsDir;
+	private final File cacheDir;
+	private final Gson gson;
+
+	public ResolvedVersionCache(File workingDirectory) {
+		this.versionsDir = new File(workingDirectory, "versions");
+		this.cacheDir = new File(this.versionsDir, ".resolved");
+		GsonBuilder builder = new GsonBuilder();
+		builder.registerTypeAdapterFactory(new LowerCaseEnumTypeAdapterFactory());
+		builder.registerTypeAdapter(Date.class, new DateTypeAdapter());
+		builder.registerTypeAdapter(ReleaseType.class, new ReleaseTypeAdapterFactory<MinecraftReleaseType>(MinecraftReleaseTypeFactory.instance()));
+		builder.registerTypeAdapter(Argument.class, new Argument.Serializer());
+		builder.enableComplexMapKeySerialization();
+		this.gson = builder.create();
+	}
+
+	public static synchronized ResolvedVersionCache getInstance() {
+		if ((instance == null) && (ENABLED)) {
+			Launcher launcher = Launcher.getCurrentInstance();
+			if (launcher != null) {
+				instance = new ResolvedVersionCache(launcher.getLauncher().getWorkingDirectory());
+			}
+		}
+		return instance;
+	}
+
+	public CompleteMinecraftVersion load(CompleteMinecraftVersion version, MinecraftVersionManager versionManager) {
+		File file = getCacheFile(version.getId());
+		if (!file.isFile()) { return null; }
+		try {
+			CachedVersion cached = (CachedVersion) this.gson.fromJson(FileUtils.readFileToString(file, Charsets.UTF_8), CachedVersion.class);
+			if ((cached == null) || (cached.format != FORMAT) || (cached.version == null) || (cached.chain == null)) { return null; }
+			if ((!version.getId().equals(cached.id)) || (getTime(version) != cached.updated)) { return null; }
+			for (ChainEntry entry : cached.chain) {
+				File json = getVersionFile(entry.id);
+				if (!entry.id.equals(cached.id)) {
+					// Parents are only installed by a full resolve, so a missing or outdated one has to go through it again
+					VersionSyncInfo parentSync = versionManager.getVersionSyncInfo(entry.id);
+					if ((!json.isFile()) || (parentSync == null) || (CompleteMinecraftVersion.needsInstall(parentSync))) { return null; }
+				}
+				if ((json.length() != entry.length) || (json.lastModified() != entry.modified)) { return null; }
+			}
+			return cached.version;
+		} catch (IOException e) {
+			return null;
+		} catch (JsonParseException e) {
+			LOGGER.warn("Couldn't read resolved version cache for " + version.getId(), e);
+			FileUtils.deleteQuietly(file);
+			return null;
+		}
+	}
+
+	public void save(CompleteMinecraftVersion version, CompleteMinecraftVersion resolved, Collection<String> chain) {
+		CachedVersion cached = new CachedVersion();
+		cached.format = FORMAT;
+		cached.id = version.getId();
+		cached.updated = getTime(version);
+		cached.chain = new ArrayList<ChainEntry>();
+		for (String id : chain) {
+			File json = getVersionFile(id);
+			ChainEntry entry = new ChainEntry();
+			entry.id = id;
+			entry.length = json.length();
+			entry.modified = json.lastModified();
+			cached.chain.add(entry);
+		}
+		cached.version = resolved;
+		File file = getCacheFile(version.getId());
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			FileUtils.writeStringToFile(temp, this.gson.toJson(cached), Charsets.UTF_8);
+			FileUtils.deleteQuietly(file);
+			if (!temp.renameTo(file)) { throw new IOException("Couldn't move " + temp + " to " + file); }
+		} catch (IOException e) {
+			LOGGER.warn("Couldn't save resolved version cache for " + version.getId(), e);
+			FileUtils.deleteQuietly(temp);
+		}
+	}
+
+	private File getVersionFile(String id) {
+		return new File(this.versionsDir, id + "/" + id + ".json");
+	}
+
+	private File getCacheFile(String id) {
+		return new File(this.cacheDir, id + ".json");
+	}
+
+	private static long getTime(CompleteMinecraftVersion version) {
+		return version.getUpdatedTime() == null ? -1L : version.getUpdatedTime().getTime();
+	}
+
+	private static class CachedVersion {
+		private int format;
+		private String id;
+		private long updated;
+		private List<ChainEntry> chain;
+		private CompleteMinecraftVersion version;
+	}
+
+	private static class ChainEntry {
+		private String id;
+		private long length;
+		private long modified;
+	}
+}
@@ -0,0 +1,363 @@
+package net.minecraft.launcher.updater;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.minecraft.launcher.Launcher;
+import net.minecraft.launcher.LauncherConstants;
+import net.minecraft.launcher.profile.Profile;
+import net.minecraft.launcher.profile.ProfileManager;
+import net.minecraft.launcher.profile.RefreshedProfilesListener;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.launcher.OperatingSystem;
+import com.mojang.launcher.events.RefreshedVersionsListener;
+import com.mojang.launcher.updater.VersionManager;
+import com.mojang.launcher.updater.VersionSyncInfo;
+import com.mojang.launcher.updater.download.Downloadable;
+import com.mojang.launcher.updater.download.assets.AssetIndexStore;
+import com.mojang.launcher.updater.download.assets.AssetVerificationJournal;
+import com.mojang.launcher.updater.download.assets.HashingService;
+import com.mojang.launcher.versions.Version;
+
+public class VersionPrefetcher {
+	private static final Logger LOGGER = LogManager.getLogger();
+	public static final boolean ENABLED = Boolean.getBoolean("mineshafter.prefetch");
+	private static final long BYTES_PER_SECOND = Math.max(1, Integer.getInteger("mineshafter.prefetchKbps", 1024).intValue()) * 1024L;
+	private static final int WORKERS = 2;
+	private static final int ATTEMPTS = 3;
+	private static final long STOP_TIMEOUT = 10000L;
+	private static VersionPrefetcher instance;
+	private final Launcher launcher;
+	private Run current;
+	private boolean launching;
+	private boolean profilesLoaded;
+
+	private VersionPrefetcher(Launcher launcher) {
+		this.launcher = launcher;
+	}
+
+	public static synchronized void install(Launcher launcher) {
+		if ((!ENABLED) || (instance != null) || (launcher == null) || (launcher.getProfileManager() == null) || (launcher.getLauncher() == null) || (launcher.getLauncher().getVersionManager() == null)) { return; }
+		final VersionPrefetcher prefetcher = new VersionPrefetcher(launcher);
+		instance = prefetcher;
+		launcher.getProfileManager().addRefreshedProfilesListener(new RefreshedProfilesListener() {
+			public void onProfilesRefreshed(ProfileManager manager) {
+				prefetcher.setProfilesLoaded();
+				prefetcher.schedule();
+			}
+		});
+		launcher.getLauncher().getVersionManager().addRefreshedVersionsListener(new RefreshedVersionsListener() {
+			public void onVersionsRefreshed(VersionManager manager) {
+				prefetcher.schedule();
+			}
+		});
+	}
+
+	public static void launchStarted() {
+		VersionPrefetcher prefetcher = getInstance();
+		if (prefetcher != null) {
+			prefetcher.stopForLaunch();
+		}
+	}
+
+	public static void launchFinished() {
+		VersionPrefetcher prefetcher = getInstance();
+		if (prefetcher != null) {
+			prefetcher.setProfilesLoaded();
+			prefetcher.setLaunching(false);
+			prefetcher.schedule();
+		}
+	}
+
+	private static synchronized VersionPrefetcher getInstance() {
+		return instance;
+	}
+
+	private void stopForLaunch() {
+		Run run;
+		synchronized (this) {
+			this.launching = true;
+			run = this.current;
+			this.current = null;
+		}
+		if (run == null) { return; }
+		// The launch downloads into the same places, so nothing of ours may still be writing once it starts
+		run.cancel();
+		if (!run.awaitStop(STOP_TIMEOUT)) {
+			LOGGER.warn("Prefetching {} didn't stop within {} ms", new Object[] { run.versionId, Long.valueOf(STOP_TIMEOUT) });
+		}
+	}
+
+	private synchronized void setLaunching(boolean launching) {
+		this.launching = launching;
+	}
+
+	private synchronized void setProfilesLoaded() {
+		this.profilesLoaded = true;
+	}
+
+	private synchronized void schedule() {
+		// Installed while versions load at startup; asking for the selected profile before profiles are read would make up a default one
+		if ((this.launching) || (!this.profilesLoaded)) { return; }
+		String versionId = getTargetVersion();
+		if (versionId == null) { return; }
+		if ((this.current != null) && (!this.current.finished) && (versionId.equals(this.current.versionId))) { return; }
+		if (this.current != null) {
+			this.current.cancel();
+		}
+		this.current = new Run(versionId);
+		this.current.start();
+	}
+
+	private String getTargetVersion() {
+		Profile profile = this.launcher.getProfileManager().getSelectedProfile();
+		if ((profile != null) && (profile.getLastVersionId() != null)) { return profile.getLastVersionId(); }
+		// Profiles that follow the latest release switch to a new version as soon as it shows up in the list
+		Version latest = null;
+		for (VersionSyncInfo syncInfo : this.launcher.getLauncher().getVersionManager().getVersions()) {
+			Version version = syncInfo.getLatestVersion();
+			if ((version == null) || (version.getType() == null) || (!"release".equals(version.getType().getName())) || (version.getReleaseTime() == null)) {
+				continue;
+			}
+			if ((latest == null) || (version.getReleaseTime().after(latest.getReleaseTime()))) {
+				latest = version;
+			}
+		}
+		return latest == null ? null : latest.getId();
+	}
+
+	private class Run implements Runnable {
+		private final String versionId;
+		private final Set<HttpURLConnection> connections = Collections.synchronizedSet(new HashSet<HttpURLConnection>());
+		private final Thread thread;
+		private volatile boolean cancelled;
+		private volatile boolean finished;
+		private volatile ExecutorService executor;
+
+		private Run(String versionId) {
+			this.versionId = versionId;
+			this.thread = new Thread(this, "Version Prefetcher");
+			this.thread.setDaemon(true);
+			this.thread.setPriority(Thread.MIN_PRIORITY);
+		}
+
+		private void start() {
+			this.thread.start();
+		}
+
+		public void run() {
+			long start = System.nanoTime();
+			try {
+				MinecraftVersionManager versionManager = (MinecraftVersionManager) VersionPrefetcher.this.launcher.getLauncher().getVersionManager();
+				VersionSyncInfo syncInfo = versionManager.getVersionSyncInfo(this.versionId);
+				if (syncInfo == null) { return; }
+				CompleteMinecraftVersion version = versionManager.getLatestCompleteVersion(syncInfo).resolve(versionManager);
+				File base = VersionPrefetcher.this.launcher.getLauncher().getWorkingDirectory();
+				Proxy proxy = VersionPrefetcher.this.launcher.getLauncher().getProxy();
+				Queue<Transfer> queue = new ConcurrentLinkedQueue<Transfer>();
+				// Only libraries that declare a checksum, anything else is left for the launch to fetch and check
+				for (Map.Entry<File, DownloadInfo> entry : version.getLaunchPlan(OperatingSystem.getCurrentPlatform()).getDeclaredDownloads(base).entrySet()) {
+					if (!((File) entry.getKey()).isFile()) {
+						DownloadInfo info = (DownloadInfo) entry.getValue();
+						queue.add(new Transfer(info.getUrl(), (File) entry.getKey(), info.getSha1(), info.getSize() > 0 ? info.getSize() : -1L, null));
+					}
+				}
+				if (this.cancelled) { return; }
+				queue.addAll(getAssetTransfers(version, proxy, base));
+				if (this.cancelled) { return; }
+				LOGGER.info("Prefetching {} files for {} in the background", new Object[] { Integer.valueOf(queue.size()), this.versionId });
+				download(queue, proxy);
+				if (!this.cancelled) {
+					LOGGER.info("Prefetched {} in {} s", new Object[] { this.versionId, Long.valueOf(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)) });
+				}
+			} catch (Throwable e) {
+				if (!this.cancelled) {
+					LOGGER.warn("Couldn't prefetch " + this.versionId, e);
+				}
+			} finally {
+				this.finished = true;
+			}
+		}
+
+		private List<Transfer> getAssetTransfers(CompleteMinecraftVersion version, Proxy proxy, File base) throws IOException {
+			List<Transfer> result = new ArrayList<Transfer>();
+			AssetIndexInfo indexInfo = version.getAssetIndex();
+			File indexFile = new File(base, "assets/indexes/" + indexInfo.getId() + ".json");
+			if ((indexInfo.getUrl() != null) && ((!indexFile.isFile()) || ((indexInfo.getSha1() != null) && (!indexInfo.getSha1().equalsIgnoreCase(HashingService.getInstance().hash(indexFile)))))) {
+				FileUtils.deleteQuietly(indexFile);
+				transfer(new Transfer(indexInfo.getUrl(), indexFile, indexInfo.getSha1(), -1L, null), proxy, Long.MAX_VALUE);
+			}
+			if (!indexFile.isFile()) { return result; }
+			AssetIndexStore index = AssetIndexStore.load(indexFile);
+			File objectsDir = new File(base, "assets/objects");
+			Set<String> seen = new HashSet<String>();
+			for (int i = 0; i < index.size(); i++) {
+				String hash = index.getHash(i);
+				File target = new File(objectsDir, index.getObjectPath(i));
+				if ((!seen.add(hash)) || (target.isFile())) {
+					continue;
+				}
+				result.add(new Transfer(new URL(LauncherConstants.URL_RESOURCE_BASE + index.getObjectPath(i)), target, hash, index.getSize(i), objectsDir));
+			}
+			return result;
+		}
+
+		private void download(final Queue<Transfer> queue, final Proxy proxy) throws InterruptedException {
+			this.executor = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Version Prefetcher #" + this.count.incrementAndGet());
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+			if (this.cancelled) {
+				this.executor.shutdownNow();
+				return;
+			}
+			for (int i = 0; i < WORKERS; i++) {
+				this.executor.execute(new Runnable() {
+					public void run() {
+						work(queue, proxy);
+					}
+				});
+			}
+			this.executor.shutdown();
+			this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+
+		private void work(Queue<Transfer> queue, Proxy proxy) {
+			long budget = Math.max(1L, BYTES_PER_SECOND / WORKERS);
+			Transfer transfer;
+			while ((!this.cancelled) && ((transfer = (Transfer) queue.poll()) != null)) {
+				for (int attempt = 0; (attempt < ATTEMPTS) && (!this.cancelled); attempt++) {
+					try {
+						transfer(transfer, proxy, budget);
+						break;
+					} catch (Throwable localThrowable) {}
+				}
+			}
+		}
+
+		private void transfer(Transfer transfer, Proxy proxy, long budget) throws IOException {
+			// Written next to the target and only moved into place when complete, so the interactive download never sees a half file of ours
+			File temp = new File(transfer.target.getPath() + ".prefetch-" + Thread.currentThread().getId());
+			transfer.target.getParentFile().mkdirs();
+			MessageDigest digest;
+			long total = 0L;
+			try {
+				digest = MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IOException(e);
+			}
+			HttpURLConnection connection = (HttpURLConnection) transfer.url.openConnection(proxy);
+			this.connections.add(connection);
+			try {
+				if (this.cancelled) { throw new InterruptedIOException("Prefetch cancelled"); }
+				InputStream inputStream = connection.getInputStream();
+				OutputStream outputStream = new FileOutputStream(temp);
+				try {
+					byte[] buffer = new byte[8192];
+					long start = System.currentTimeMillis();
+					int length;
+					while ((length = inputStream.read(buffer)) != -1) {
+						if (this.cancelled) { throw new InterruptedIOException("Prefetch cancelled"); }
+						outputStream.write(buffer, 0, length);
+						digest.update(buffer, 0, length);
+						total += length;
+						long wait = total * 1000L / budget - (System.currentTimeMillis() - start);
+						if (wait > 0L) {
+							try {
+								Thread.sleep(wait);
+							} catch (InterruptedException e) {
+								throw new InterruptedIOException("Prefetch cancelled");
+							}
+						}
+					}
+				} finally {
+					Downloadable.closeSilently(outputStream);
+					Downloadable.closeSilently(inputStream);
+				}
+				if ((total != transfer.size) && (transfer.size >= 0L)) { throw new IOException("Prefetched " + total + " of " + transfer.size + " bytes from " + transfer.url); }
+				if ((total != connection.getContentLength()) && (connection.getContentLength() >= 0)) { throw new IOException("Connection closed after " + total + " bytes of " + transfer.url); }
+				String hash = HashingService.toHex(digest.digest());
+				if ((transfer.sha1 != null) && (!transfer.sha1.equalsIgnoreCase(hash))) { throw new IOException("Hash did not match prefetched " + transfer.url); }
+				if ((this.cancelled) || (transfer.target.exists())) { return; }
+				if (!temp.renameTo(transfer.target)) { throw new IOException("Couldn't move " + temp + " to " + transfer.target); }
+				if (transfer.objectsDir != null) {
+					AssetVerificationJournal.forDirectory(transfer.objectsDir).record(hash, transfer.target);
+				}
+			} finally {
+				this.connections.remove(connection);
+				FileUtils.deleteQuietly(temp);
+			}
+		}
+
+		private void cancel() {
+			this.cancelled = true;
+			ExecutorService executor = this.executor;
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			// Reads on a connection ignore interrupts, closing its socket is what makes them give up
+			synchronized (this.connections) {
+				for (HttpURLConnection connection : this.connections) {
+					connection.disconnect();
+				}
+			}
+		}
+
+		private boolean awaitStop(long timeout) {
+			try {
+				this.thread.join(timeout);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return !this.thread.isAlive();
+		}
+	}
+
+	private static class Transfer {
+		private final URL url;
+		private final File target;
+		private final String sha1;
+		private final long size;
+		private final File objectsDir;
+
+		private Transfer(URL url, File target, String sha1, long size, File objectsDir) {
+			this.url = url;
+			this.target = target;
+			this.sha1 = sha1;
+			this.size = size;
+			this.objectsDir = objectsDir;
+		}
+	}
+}
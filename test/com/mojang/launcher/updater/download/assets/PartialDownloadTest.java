@@ -0,0 +1,255 @@
+package com.mojang.launcher.updater.download.assets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mojang.launcher.updater.download.ProgressContainer;
+
+public class PartialDownloadTest {
+	private static final int SIZE = 1024 * 1024;
+	private static final int DROP_AFTER = 300 * 1024;
+	private final byte[] body = new byte[SIZE];
+	private String hash;
+	private StubServer server;
+	private File dir;
+	private File target;
+
+	@Before
+	public void setUp() throws Exception {
+		new Random(4L).nextBytes(this.body);
+		this.hash = String.format("%1$040x", new Object[] { new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(this.body)) });
+		this.server = new StubServer(this.body);
+		this.dir = new File(System.getProperty("java.io.tmpdir"), "partial-download-" + System.nanoTime());
+		this.target = new File(this.dir, "objects/" + this.hash.substring(0, 2) + "/" + this.hash);
+		this.target.getParentFile().mkdirs();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.server.close();
+		FileUtils.deleteQuietly(this.dir);
+	}
+
+	@Test
+	public void resumesFromTheDropWhenTheServerAnswers206() throws Exception {
+		PartialDownload download = new PartialDownload(this.target, this.hash, SIZE);
+		this.server.dropAfter = DROP_AFTER;
+		assertEquals(0L, download.prepare());
+		assertTruncated(download);
+		this.server.dropAfter = -1;
+		assertEquals(DROP_AFTER, download.prepare());
+		assertTrue(download.receive(open(download), new ProgressContainer()));
+		assertEquals("bytes=" + DROP_AFTER + "-", this.server.getRanges().get(1));
+		assertEquals(1, this.server.partialResponses);
+		assertCommitted(download);
+	}
+
+	@Test
+	public void startsOverWhenTheServerIgnoresRange() throws Exception {
+		PartialDownload download = new PartialDownload(this.target, this.hash, SIZE);
+		this.server.dropAfter = DROP_AFTER;
+		download.prepare();
+		assertTruncated(download);
+		this.server.dropAfter = -1;
+		this.server.ignoreRange = true;
+		assertEquals(DROP_AFTER, download.prepare());
+		assertTrue(download.receive(open(download), new ProgressContainer()));
+		assertEquals("bytes=" + DROP_AFTER + "-", this.server.getRanges().get(1));
+		assertEquals(0, this.server.partialResponses);
+		assertEquals(SIZE, new File(this.target.getPath() + ".part").length());
+		assertCommitted(download);
+	}
+
+	@Test
+	public void keepsACompletePartWhenTheServerAnswers416() throws Exception {
+		PartialDownload download = new PartialDownload(this.target, this.hash, SIZE);
+		download.prepare();
+		assertTrue(download.receive(open(download), new ProgressContainer()));
+		// Pretend the commit never happened, the next attempt asks for a range past the end
+		assertEquals(SIZE, download.prepare());
+		assertFalse(download.receive(open(download), new ProgressContainer()));
+		assertEquals("bytes=" + SIZE + "-", this.server.getRanges().get(1));
+		assertCommitted(download);
+	}
+
+	@Test
+	public void dropsBytesTheDigestNeverSaw() throws Exception {
+		PartialDownload download = new PartialDownload(this.target, this.hash, SIZE);
+		this.server.dropAfter = DROP_AFTER;
+		download.prepare();
+		assertTruncated(download);
+		// A write that landed on disk after the digest gave up on it
+		File partFile = new File(this.target.getPath() + ".part");
+		RandomAccessFile file = new RandomAccessFile(partFile, "rw");
+		try {
+			file.seek(file.length());
+			file.write(new byte[4096]);
+		} finally {
+			file.close();
+		}
+		this.server.dropAfter = -1;
+		assertEquals(DROP_AFTER, download.prepare());
+		assertEquals(DROP_AFTER, partFile.length());
+		assertTrue(download.receive(open(download), new ProgressContainer()));
+		assertCommitted(download);
+	}
+
+	@Test
+	public void rebuildsTheDigestFromAPartLeftByAnotherSession() throws Exception {
+		this.server.dropAfter = DROP_AFTER;
+		PartialDownload first = new PartialDownload(this.target, this.hash, SIZE);
+		first.prepare();
+		assertTruncated(first);
+		this.server.dropAfter = -1;
+		PartialDownload second = new PartialDownload(this.target, this.hash, SIZE);
+		assertEquals(DROP_AFTER, second.prepare());
+		assertTrue(second.receive(open(second), new ProgressContainer()));
+		assertCommitted(second);
+	}
+
+	private HttpURLConnection open(PartialDownload download) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + this.server.getPort() + "/" + this.hash).openConnection();
+		connection.setUseCaches(false);
+		download.applyRange(connection);
+		return connection;
+	}
+
+	private void assertTruncated(PartialDownload download) throws Exception {
+		try {
+			download.receive(open(download), new ProgressContainer());
+			fail("Expected the dropped connection to fail the transfer");
+		} catch (IOException e) {}
+	}
+
+	private void assertCommitted(PartialDownload download) throws Exception {
+		assertEquals(this.hash, download.getHash());
+		download.commit();
+		assertArrayEquals(this.body, FileUtils.readFileToByteArray(this.target));
+		assertFalse(new File(this.target.getPath() + ".part").exists());
+		assertFalse(new File(this.target.getPath() + ".part.meta").exists());
+	}
+
+	private static class StubServer implements Runnable {
+		private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-");
+		private final byte[] body;
+		private final ServerSocket socket;
+		private final Thread thread;
+		private final List<String> ranges = Collections.synchronizedList(new ArrayList<String>());
+		private volatile int dropAfter = -1;
+		private volatile boolean ignoreRange;
+		private volatile int partialResponses;
+
+		private StubServer(byte[] body) throws IOException {
+			this.body = body;
+			this.socket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+			this.thread = new Thread(this, "Stub HTTP server");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		public void run() {
+			while (!this.socket.isClosed()) {
+				try {
+					Socket client = this.socket.accept();
+					try {
+						serve(client);
+					} finally {
+						client.close();
+					}
+				} catch (IOException e) {}
+			}
+		}
+
+		private void serve(Socket client) throws IOException {
+			String range = null;
+			for (String line : readHead(client.getInputStream())) {
+				if (line.toLowerCase().startsWith("range:")) {
+					range = line.substring(6).trim();
+				}
+			}
+			this.ranges.add(range);
+			int start = 0;
+			Matcher matcher = range == null ? null : RANGE_PATTERN.matcher(range);
+			if ((!this.ignoreRange) && (matcher != null) && (matcher.matches())) {
+				start = Integer.parseInt(matcher.group(1));
+			}
+			OutputStream output = client.getOutputStream();
+			if (start >= this.body.length) {
+				output.write(("HTTP/1.1 416 Range Not Satisfiable\r\nContent-Range: bytes */" + this.body.length + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n").getBytes(Charsets.US_ASCII));
+				output.flush();
+				return;
+			}
+			StringBuilder head = new StringBuilder();
+			if (start > 0) {
+				this.partialResponses++;
+				head.append("HTTP/1.1 206 Partial Content\r\nContent-Range: bytes ").append(start).append('-').append(this.body.length - 1).append('/').append(this.body.length).append("\r\n");
+			} else {
+				head.append("HTTP/1.1 200 OK\r\n");
+			}
+			head.append("Content-Length: ").append(this.body.length - start).append("\r\nConnection: close\r\n\r\n");
+			output.write(head.toString().getBytes(Charsets.US_ASCII));
+			// Promises the whole body but hangs up part way through, like a flaky link would
+			int end = this.dropAfter < 0 ? this.body.length : Math.min(this.body.length, start + this.dropAfter);
+			output.write(this.body, start, end - start);
+			output.flush();
+		}
+
+		private static List<String> readHead(InputStream input) throws IOException {
+			List<String> lines = new ArrayList<String>();
+			StringBuilder line = new StringBuilder();
+			int read;
+			while ((read = input.read()) != -1) {
+				if (read == '\n') {
+					if (line.length() == 0) {
+						break;
+					}
+					lines.add(line.toString());
+					line.setLength(0);
+				} else if (read != '\r') {
+					line.append((char) read);
+				}
+			}
+			return lines;
+		}
+
+		private List<String> getRanges() {
+			return this.ranges;
+		}
+
+		private int getPort() {
+			return this.socket.getLocalPort();
+		}
+
+		private void close() throws IOException {
+			this.socket.close();
+		}
+	}
+}